@@ -0,0 +1,109 @@
+package io.invokegs.betterregions.features;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.protection.flags.registry.SimpleFlagRegistry;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.managers.index.PriorityRTreeIndex;
+import com.sk89q.worldguard.protection.managers.storage.MemoryRegionDatabase;
+import com.sk89q.worldguard.protection.regions.GlobalProtectedRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import io.invokegs.betterregions.integration.WorldGuardIntegration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares resolving the regions of an explosion block list in one batch with one WorldGuard
+ * point query per block, in a town of 16x16 plots under a parent region.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExplosionRegionResolverBenchmark {
+    private static final int PLOT_SIZE = 16;
+    private static final int PLOTS_PER_SIDE = 8;
+
+    @Param({"100", "1000", "10000"})
+    public int blockCount;
+
+    private final WorldGuardIntegration worldGuard = new WorldGuardIntegration();
+    private RegionManager manager;
+    private int[] xs;
+    private int[] ys;
+    private int[] zs;
+
+    @Setup
+    public void setup() throws ProtectedRegion.CircularInheritanceException {
+        manager = new RegionManager(new MemoryRegionDatabase(), new PriorityRTreeIndex.Factory(), new SimpleFlagRegistry());
+        manager.addRegion(new GlobalProtectedRegion("__global__"));
+
+        var extent = PLOTS_PER_SIDE * PLOT_SIZE;
+        var town = new ProtectedCuboidRegion("town",
+                BlockVector3.at(-extent / 2, -64, -extent / 2), BlockVector3.at(extent / 2 - 1, 319, extent / 2 - 1));
+        manager.addRegion(town);
+
+        for (int plotX = 0; plotX < PLOTS_PER_SIDE; plotX++) {
+            for (int plotZ = 0; plotZ < PLOTS_PER_SIDE; plotZ++) {
+                var minX = plotX * PLOT_SIZE - extent / 2;
+                var minZ = plotZ * PLOT_SIZE - extent / 2;
+                var plot = new ProtectedCuboidRegion("plot_" + plotX + "_" + plotZ,
+                        BlockVector3.at(minX, -64, minZ), BlockVector3.at(minX + PLOT_SIZE - 1, 319, minZ + PLOT_SIZE - 1));
+                plot.setParent(town);
+                manager.addRegion(plot);
+            }
+        }
+
+        manager.addRegion(new ProtectedPolygonalRegion("plaza", List.of(
+                BlockVector2.at(-12, 0), BlockVector2.at(0, -12), BlockVector2.at(12, 0), BlockVector2.at(0, 12)), 60, 80));
+
+        // A cube of blocks centred on the plaza, spanning several plots like a cannon volley
+        var side = (int) Math.ceil(Math.cbrt(blockCount));
+        xs = new int[blockCount];
+        ys = new int[blockCount];
+        zs = new int[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            xs[i] = i % side - side / 2;
+            ys[i] = 64 + (i / side) % side;
+            zs[i] = i / (side * side) - side / 2;
+        }
+    }
+
+    @Benchmark
+    public void perBlockQueries(Blackhole blackhole) {
+        for (int i = 0; i < blockCount; i++) {
+            blackhole.consume(manager.getApplicableRegions(BlockVector3.at(xs[i], ys[i], zs[i])));
+        }
+    }
+
+    @Benchmark
+    public void batchedResolver(Blackhole blackhole) {
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (int i = 0; i < blockCount; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            minZ = Math.min(minZ, zs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+            maxZ = Math.max(maxZ, zs[i]);
+        }
+
+        var resolver = ExplosionRegionResolver.create(worldGuard, manager, minX, minY, minZ, maxX, maxY, maxZ);
+        for (int i = 0; i < blockCount; i++) {
+            blackhole.consume(resolver.resolve(xs[i], ys[i], zs[i]));
+        }
+    }
+}
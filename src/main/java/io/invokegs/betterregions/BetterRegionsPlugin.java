@@ -8,7 +8,10 @@ import io.invokegs.betterregions.features.AutoFlagsFeature;
 import io.invokegs.betterregions.features.BlockLimitsFeature;
 import io.invokegs.betterregions.features.RegionProtectFeature;
 import io.invokegs.betterregions.features.VerticalExpandFeature;
+import io.invokegs.betterregions.integration.AsyncEconomy;
 import io.invokegs.betterregions.integration.RegionCommandWrapper;
+import io.invokegs.betterregions.integration.RegionIndex;
+import io.invokegs.betterregions.integration.RegionSaveScheduler;
 import io.invokegs.betterregions.integration.inject.CommandInjector;
 import io.invokegs.betterregions.integration.VaultIntegration;
 import io.invokegs.betterregions.integration.WorldGuardIntegration;
@@ -23,8 +26,12 @@ public final class BetterRegionsPlugin extends JavaPlugin {
     private final Configuration configuration = new Configuration(this);
     private final Messages messages = new Messages(this, configuration);
     private final WorldGuardIntegration worldGuardIntegration = new WorldGuardIntegration();
+    private final RegionIndex regionIndex = new RegionIndex(this, worldGuardIntegration, configuration);
+    private final RegionSaveScheduler regionSaveScheduler = new RegionSaveScheduler(this, configuration);
     private final VaultIntegration vaultIntegration = new VaultIntegration(this);
-    private final EconomyService economyService = new EconomyService(vaultIntegration, configuration, messages, this);
+    private final AsyncEconomy asyncEconomy = new AsyncEconomy(this, vaultIntegration);
+    private final EconomyService economyService
+            = new EconomyService(vaultIntegration, asyncEconomy, configuration, messages, this, regionIndex);
     private final UpdateChecker updateChecker = new UpdateChecker(this);
 
     private final VerticalExpandFeature verticalExpandFeature
@@ -33,13 +40,14 @@ public final class BetterRegionsPlugin extends JavaPlugin {
             = new BlockLimitsFeature(configuration, messages);
 
     private final RegionProtectFeature regionProtectFeature
-            = new RegionProtectFeature(this, configuration, messages, worldGuardIntegration);
+            = new RegionProtectFeature(this, configuration, messages, worldGuardIntegration, regionIndex);
     private final AutoFlagsFeature autoFlagsFeature
             = new AutoFlagsFeature(configuration, messages, worldGuardIntegration, getLogger());
 
     private final CommandInjector commandInjector = new CommandInjector(this, "region",
             templateCommand -> new RegionCommandWrapper(this,
-                    templateCommand, configuration, messages, economyService, worldGuardIntegration,
+                    templateCommand, configuration, messages, economyService, worldGuardIntegration, regionIndex,
+                    regionSaveScheduler,
                     verticalExpandFeature, blockLimitsFeature, autoFlagsFeature)
     );
 
@@ -68,9 +76,11 @@ public final class BetterRegionsPlugin extends JavaPlugin {
 
     public void reload() {
         try {
+            regionSaveScheduler.flush();
             configuration.reload();
             messages.reload();
             economyService.reload();
+            regionProtectFeature.reload();
             getLogger().info("BetterRegions reloaded successfully!");
         } catch (Exception e) {
             getLogger().log(Level.SEVERE, "Failed to reload BetterRegions", e);
@@ -79,6 +89,8 @@ public final class BetterRegionsPlugin extends JavaPlugin {
 
     private void setupIntegrations() {
         worldGuardIntegration.setup();
+        regionIndex.enable();
+        regionSaveScheduler.enable();
         vaultIntegration.setup();
         economyService.setup();
     }
@@ -121,7 +133,10 @@ public final class BetterRegionsPlugin extends JavaPlugin {
 
     private void cleanup() {
         economyService.cleanup();
+        asyncEconomy.shutdown();
         regionProtectFeature.disable();
+        regionSaveScheduler.disable();
+        regionIndex.disable();
     }
 
     public Configuration config() {
@@ -139,4 +154,12 @@ public final class BetterRegionsPlugin extends JavaPlugin {
     public UpdateChecker updateChecker() {
         return updateChecker;
     }
+
+    public RegionProtectFeature regionProtection() {
+        return regionProtectFeature;
+    }
+
+    public RegionSaveScheduler regionSaves() {
+        return regionSaveScheduler;
+    }
 }
\ No newline at end of file
@@ -58,6 +58,7 @@ public final class BetterRegionsCommand implements CommandExecutor, TabCompleter
             case "reload" -> handleReloadCommand(sender);
             case "help" -> handleHelpCommand(sender);
             case "update" -> handleUpdateCommand(sender);
+            case "stats" -> handleStatsCommand(sender);
             default -> handleHelpCommand(sender);
         };
     }
@@ -66,7 +67,7 @@ public final class BetterRegionsCommand implements CommandExecutor, TabCompleter
     public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
         if (args.length <= 1) {
             var partial = args.length == 1 ? args[0].toLowerCase(Locale.ROOT) : "";
-            return Stream.of("reload", "info", "help", "version", "update")
+            return Stream.of("reload", "info", "help", "version", "update", "stats")
                     .filter(sub -> sub.startsWith(partial))
                     .toList();
         }
@@ -116,6 +117,27 @@ public final class BetterRegionsCommand implements CommandExecutor, TabCompleter
         return true;
     }
 
+    private boolean handleStatsCommand(CommandSender sender) {
+        if (!sender.hasPermission("betterregions.admin")) {
+            sender.sendMessage(messages.noPermission());
+            return true;
+        }
+
+        var decisions = plugin.regionProtection().getExplosionDecisionStats();
+        sender.sendMessage(text("BetterRegions Statistics", Style.style(GRAY, TextDecoration.BOLD)));
+        sender.sendMessage(text("  Explosion decision cache: ", GRAY)
+                .append(text(decisions.hits() + " hits, " + decisions.misses() + " misses", YELLOW))
+                .append(text(String.format(Locale.ROOT, " (%.1f%% hit rate)", decisions.hitRate() * 100), GRAY)));
+
+        var saves = plugin.regionSaves().getStats();
+        sender.sendMessage(text("  Region saves: ", GRAY)
+                .append(text(saves.saves() + " saved, " + saves.failures() + " failed, "
+                        + saves.queueDepth() + " queued", YELLOW))
+                .append(text(String.format(Locale.ROOT, " (%.1f ms avg, %.1f ms max)",
+                        saves.averageMillis(), saves.maxMillis()), GRAY)));
+        return true;
+    }
+
     private boolean handleHelpCommand(CommandSender sender) {
         sender.sendMessage(HELP_HEADER);
 
@@ -123,6 +145,7 @@ public final class BetterRegionsCommand implements CommandExecutor, TabCompleter
         var commands = List.of(
                 createCommandHelp("/betterregions reload", "Reload plugin configuration", "betterregions.admin"),
                 createCommandHelp("/betterregions update", "Check for plugin updates", "betterregions.admin"),
+                createCommandHelp("/betterregions stats", "Show runtime cache statistics", "betterregions.admin"),
                 createCommandHelp("/betterregions help", "Show this help message"),
                 createCommandHelp("/rg claim <region>", "Claim a region with economy integration"),
                 createCommandHelp("/rg redefine <region>", "Redefine region boundaries"),
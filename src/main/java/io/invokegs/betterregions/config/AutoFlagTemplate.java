@@ -0,0 +1,125 @@
+package io.invokegs.betterregions.config;
+
+import com.sk89q.worldguard.protection.flags.Flag;
+import com.sk89q.worldguard.protection.flags.Flags;
+import com.sk89q.worldguard.protection.flags.registry.FlagRegistry;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import org.bukkit.configuration.ConfigurationSection;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Auto flags parsed and validated once on load. Applying a template only copies the
+ * typed values onto a region.
+ */
+public final class AutoFlagTemplate {
+    public static final AutoFlagTemplate EMPTY = new AutoFlagTemplate(Map.of());
+
+    /**
+     * A flag with its unmarshaled value. Values that may be mutable, like the sets of set flags
+     * or locations, are copied for every region so regions never share an instance.
+     */
+    private record FlagValue<T>(Flag<T> flag, T value, boolean immutable) {
+        static <T> @Nullable FlagValue<T> unmarshal(Flag<T> flag, Object raw) {
+            var value = flag.unmarshal(raw);
+            // Values from YAML keep their type, but flags written as text in the config still parse
+            if (value == null && !(raw instanceof String)) {
+                value = flag.unmarshal(String.valueOf(raw));
+            }
+            return value != null ? new FlagValue<>(flag, value, isImmutable(value)) : null;
+        }
+
+        private static boolean isImmutable(Object value) {
+            return value instanceof String || value instanceof Number || value instanceof Boolean
+                    || value instanceof Enum<?>;
+        }
+
+        void applyTo(ProtectedRegion region) {
+            region.setFlag(flag, immutable ? value : copy());
+        }
+
+        private T copy() {
+            var copy = flag.unmarshal(flag.marshal(value));
+            return copy != null ? copy : value;
+        }
+    }
+
+    private final Map<Flag<?>, FlagValue<?>> values;
+
+    private AutoFlagTemplate(Map<Flag<?>, FlagValue<?>> values) {
+        this.values = values;
+    }
+
+    /**
+     * Parses a section of flag names and values, reporting invalid entries.
+     * @param section the section to parse
+     * @param registry the WorldGuard flag registry
+     * @param logger the logger to report invalid entries to
+     * @return the template
+     */
+    static AutoFlagTemplate parse(ConfigurationSection section, FlagRegistry registry, Logger logger) {
+        var values = new LinkedHashMap<Flag<?>, FlagValue<?>>();
+
+        for (var flagName : section.getKeys(false)) {
+            var path = section.getCurrentPath() + "." + flagName;
+            var flag = Flags.fuzzyMatchFlag(registry, flagName);
+            if (flag == null) {
+                logger.warning("Unknown auto flag " + path + ", ignoring it");
+                continue;
+            }
+
+            var raw = section.get(flagName);
+            FlagValue<?> value;
+            try {
+                value = raw != null ? FlagValue.unmarshal(flag, raw) : null;
+            } catch (Exception e) {
+                logger.warning("Invalid value '" + raw + "' for auto flag " + path + ": " + e.getMessage() + ", ignoring it");
+                continue;
+            }
+
+            if (value == null) {
+                logger.warning("Invalid value '" + raw + "' for auto flag " + path + ", ignoring it");
+                continue;
+            }
+            values.put(flag, value);
+        }
+
+        return values.isEmpty() ? EMPTY : new AutoFlagTemplate(Collections.unmodifiableMap(values));
+    }
+
+    /**
+     * Gets a template with the flags of this one, overridden by the flags of another one.
+     * @param overrides the template whose values take precedence
+     * @return the combined template
+     */
+    public AutoFlagTemplate with(AutoFlagTemplate overrides) {
+        if (overrides.isEmpty()) return this;
+        if (isEmpty()) return overrides;
+
+        var combined = new LinkedHashMap<>(values);
+        combined.putAll(overrides.values);
+        return new AutoFlagTemplate(Collections.unmodifiableMap(combined));
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Sets every flag of this template on a region.
+     * @param region the region
+     */
+    public void applyTo(ProtectedRegion region) {
+        for (var value : values.values()) {
+            value.applyTo(region);
+        }
+    }
+}
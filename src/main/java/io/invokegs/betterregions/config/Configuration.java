@@ -1,20 +1,25 @@
 package io.invokegs.betterregions.config;
 
 import com.sk89q.worldguard.WorldGuard;
-import com.sk89q.worldguard.protection.flags.Flag;
-import com.sk89q.worldguard.protection.flags.Flags;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.Plugin;
+import org.jspecify.annotations.Nullable;
 
 import java.io.File;
 import java.math.BigInteger;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 
+/**
+ * Plugin configuration. Every load parses and validates the file into an immutable {@link Snapshot}
+ * that is published through a single volatile reference, so readers never see a half-loaded
+ * state and getters return pre-built collections without copying.
+ */
 public final class Configuration {
     /**
      * Represents pricing information for a permission tier.
@@ -47,25 +52,70 @@ public final class Configuration {
         NO_EXPLOSIONS
     }
 
+    /**
+     * Immutable, validated configuration values of one load.
+     */
+    public record Snapshot(
+            boolean verticalExpandEnabled,
+            long minHorizontal,
+            long minVertical,
+            boolean economyEnabled,
+            double defaultHorizontalPricePerBlock,
+            double defaultVerticalPricePerBlock,
+            int confirmationTimeoutSeconds,
+            Map<String, PricingTier> pricePermissions,
+            Map<String, PricingTier> pricingNodes,
+            boolean showAutoFlagMessages,
+            AutoFlagTemplate autoFlags,
+            Map<String, AutoFlagTemplate> worldAutoFlags,
+            Map<String, AutoFlagTemplate> tierAutoFlags,
+            boolean fireSpreadProtection,
+            boolean blockBurnProtection,
+            ExplosionMode explosionMode,
+            Set<String> restrictedCommands,
+            int skullMatchWindowSeconds,
+            int skullRetentionSeconds,
+            boolean checkUpdates,
+            int ownerCacheSize,
+            int ownerCacheTtlSeconds,
+            int pricingCacheTtlSeconds,
+            int regionIndexRebuildIntervalSeconds,
+            int regionSaveIntervalSeconds
+    ) {
+        public Snapshot {
+            pricePermissions = Map.copyOf(pricePermissions);
+            pricingNodes = Map.copyOf(pricingNodes);
+            worldAutoFlags = Map.copyOf(worldAutoFlags);
+            // Tier flags are applied in configured order
+            tierAutoFlags = Collections.unmodifiableMap(new LinkedHashMap<>(tierAutoFlags));
+            restrictedCommands = Set.copyOf(restrictedCommands);
+        }
+
+        /**
+         * Gets the values used when the configuration file cannot be loaded.
+         */
+        static Snapshot defaults() {
+            return new Snapshot(
+                    false, 1, 1,
+                    false, 0.1, 0.00005, 120, Map.of(), Map.of(),
+                    false, AutoFlagTemplate.EMPTY, Map.of(), Map.of(),
+                    false, false, ExplosionMode.UNTOUCHED, Set.of(), 30, 60,
+                    true,
+                    1024, 300, 60, 300, 5
+            );
+        }
+
+        /**
+         * Gets the auto flags of new regions in a world, including the flags of all worlds.
+         */
+        public AutoFlagTemplate autoFlagsFor(String worldName) {
+            return worldAutoFlags.getOrDefault(worldName, autoFlags);
+        }
+    }
+
     private final Plugin plugin;
     private final File configFile;
-    private YamlConfiguration config;
-
-    private boolean verticalExpandEnabled;
-    private BigInteger minHorizontal = BigInteger.valueOf(1);
-    private BigInteger minVertical = BigInteger.valueOf(1);
-    private boolean economyEnabled;
-    private double defaultHorizontalPricePerBlock;
-    private double defaultVerticalPricePerBlock;
-    private int confirmationTimeoutSeconds;
-    private final Map<String, PricingTier> pricePermissions = new HashMap<>();
-    private boolean showAutoFlagMessages;
-    private final Map<Flag<?>, String> autoFlags = new HashMap<>();
-    private boolean fireSpreadProtection;
-    private boolean blockBurnProtection;
-    private ExplosionMode explosionMode;
-    private Set<String> restrictedCommands = new HashSet<>();
-    private boolean checkUpdates;
+    private volatile Snapshot snapshot = Snapshot.defaults();
 
     public Configuration(Plugin plugin) {
         this.plugin = plugin;
@@ -76,12 +126,20 @@ public final class Configuration {
     }
 
     /**
-     * Reloads the configuration from disk.
+     * Reloads the configuration from disk. The new values replace the old ones at once.
      */
     public void reload() {
         load();
     }
 
+    /**
+     * Gets the current configuration values. Callers reading several values that must be
+     * consistent with each other should read them from one snapshot.
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
     private void saveDefaultConfig() {
         if (!configFile.exists()) {
             plugin.saveResource("config.yml", false);
@@ -90,160 +148,166 @@ public final class Configuration {
 
     private void load() {
         try {
-            this.config = YamlConfiguration.loadConfiguration(configFile);
-            loadAllSettings();
+            this.snapshot = parse(YamlConfiguration.loadConfiguration(configFile));
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "Failed to load configuration", e);
-            setDefaults();
+            this.snapshot = Snapshot.defaults();
         }
     }
 
-    private void loadAllSettings() {
-        loadVerticalExpandSettings();
-        loadBlockLimitSettings();
-        loadEconomySettings();
-        loadAutoFlagSettings();
-        loadRegionProtectionSettings();
-        loadUpdateSettings();
-    }
-
-    private void loadVerticalExpandSettings() {
-        this.verticalExpandEnabled = config.getBoolean("features.vertical-expand.enabled", false);
-    }
-
-    private void loadBlockLimitSettings() {
-        var section = config.getConfigurationSection("features.block-limits");
-        this.minHorizontal = getBigInteger(section, "min-horizontal", BigInteger.valueOf(20));
-        this.minVertical = getBigInteger(section, "min-vertical", BigInteger.valueOf(20));
-    }
-
-    private void loadEconomySettings() {
-        var section = config.getConfigurationSection("economy");
-        if (section == null) {
-            this.economyEnabled = false;
-            return;
+    private Snapshot parse(YamlConfiguration config) {
+        var limits = config.getConfigurationSection("features.block-limits");
+
+        var economy = config.getConfigurationSection("economy");
+        var economyEnabled = economy != null && economy.getBoolean("enabled", false);
+        var horizontalPrice = economy != null ? economy.getDouble("horizontal-price-per-block", 0.1) : 0.1;
+        var verticalPrice = economy != null ? economy.getDouble("vertical-price-per-block", 0.00005) : 0.00005;
+        var confirmationTimeout = economy != null ? economy.getInt("confirmation-timeout-seconds", 120) : 120;
+
+        var pricePermissions = new HashMap<String, PricingTier>();
+        var pricingNodes = new HashMap<String, PricingTier>();
+        var priceSection = economy != null ? economy.getConfigurationSection("price-permissions") : null;
+        if (priceSection != null) {
+            for (var permission : priceSection.getKeys(false)) {
+                var permissionSection = priceSection.getConfigurationSection(permission);
+                if (permissionSection != null) {
+                    var horizontal = permissionSection.getDouble("horizontal", horizontalPrice);
+                    var vertical = permissionSection.getDouble("vertical", verticalPrice);
+                    var tier = new PricingTier(horizontal, vertical);
+                    pricePermissions.put(permission, tier);
+                    pricingNodes.put(("betterregions.pricing." + permission).intern(), tier);
+                }
+            }
         }
 
-        this.economyEnabled = section.getBoolean("enabled", false);
-        this.defaultHorizontalPricePerBlock = section.getDouble("horizontal-price-per-block", 0.1);
-        this.defaultVerticalPricePerBlock = section.getDouble("vertical-price-per-block", 0.00005);
-        this.confirmationTimeoutSeconds = section.getInt("confirmation-timeout-seconds", 120);
-
-        loadPricePermissions(section);
-    }
-
-    private void loadPricePermissions(ConfigurationSection section) {
-        var priceSection = section.getConfigurationSection("price-permissions");
-        if (priceSection == null) return;
-
-        pricePermissions.clear();
-        for (var permission : priceSection.getKeys(false)) {
-            var permissionSection = priceSection.getConfigurationSection(permission);
-            if (permissionSection != null) {
-                var horizontal = permissionSection.getDouble("horizontal", defaultHorizontalPricePerBlock);
-                var vertical = permissionSection.getDouble("vertical", defaultVerticalPricePerBlock);
-                pricePermissions.put(permission, new PricingTier(horizontal, vertical));
-            }
+        var autoFlagSection = config.getConfigurationSection("features.auto-flags");
+        var showAutoFlagMessages = autoFlagSection != null && autoFlagSection.getBoolean("show-messages", false);
+        var autoFlags = parseAutoFlags(autoFlagSection, "flags");
+        var worldAutoFlags = new HashMap<String, AutoFlagTemplate>();
+        for (var entry : parseAutoFlagGroups(autoFlagSection, "worlds").entrySet()) {
+            worldAutoFlags.put(entry.getKey(), autoFlags.with(entry.getValue()));
         }
+        var tierAutoFlags = new LinkedHashMap<String, AutoFlagTemplate>();
+        for (var entry : parseAutoFlagGroups(autoFlagSection, "tiers").entrySet()) {
+            tierAutoFlags.put(("betterregions.pricing." + entry.getKey()).intern(), entry.getValue());
+        }
+
+        var protection = config.getConfigurationSection("features.region-protection");
+        var skullMatchWindow = protection != null
+                ? Math.max(1, protection.getInt("wither-attribution.match-window-seconds", 30)) : 30;
+        // Placements must be kept at least as long as they can match
+        var skullRetention = protection != null
+                ? Math.max(skullMatchWindow, protection.getInt("wither-attribution.retention-seconds", 60)) : 60;
+
+        return new Snapshot(
+                config.getBoolean("features.vertical-expand.enabled", false),
+                limits != null ? getLong(limits, "min-horizontal", 20) : 1,
+                limits != null ? getLong(limits, "min-vertical", 20) : 1,
+                economyEnabled,
+                horizontalPrice,
+                verticalPrice,
+                confirmationTimeout,
+                pricePermissions,
+                pricingNodes,
+                showAutoFlagMessages,
+                autoFlags,
+                worldAutoFlags,
+                tierAutoFlags,
+                protection != null && protection.getBoolean("fire-spread", false),
+                protection != null && protection.getBoolean("block-burn", false),
+                protection != null ? parseExplosionMode(protection) : ExplosionMode.UNTOUCHED,
+                protection != null ? Set.copyOf(protection.getStringList("restrict-commands.commands")) : Set.of(),
+                skullMatchWindow,
+                skullRetention,
+                config.getBoolean("check-updates", true),
+                Math.max(1, config.getInt("performance.owner-cache.size", 1024)),
+                Math.max(1, config.getInt("performance.owner-cache.ttl-seconds", 300)),
+                Math.max(1, config.getInt("performance.pricing-cache.ttl-seconds", 60)),
+                Math.max(0, config.getInt("performance.region-index.rebuild-interval-seconds", 300)),
+                Math.max(0, config.getInt("performance.region-save.interval-seconds", 5))
+        );
     }
 
-    private void loadAutoFlagSettings() {
-        var section = config.getConfigurationSection("features.auto-flags");
-        if (section == null) return;
+    private AutoFlagTemplate parseAutoFlags(@Nullable ConfigurationSection section, String path) {
+        var flagsSection = section != null ? section.getConfigurationSection(path) : null;
+        if (flagsSection == null) return AutoFlagTemplate.EMPTY;
 
-        this.showAutoFlagMessages = section.getBoolean("show-messages", false);
-        loadAutoFlags(section);
+        return AutoFlagTemplate.parse(flagsSection, WorldGuard.getInstance().getFlagRegistry(), plugin.getLogger());
     }
 
-    private void loadAutoFlags(ConfigurationSection section) {
-        var flagsSection = section.getConfigurationSection("flags");
-        if (flagsSection == null) return;
+    private Map<String, AutoFlagTemplate> parseAutoFlagGroups(@Nullable ConfigurationSection section, String path) {
+        var groupsSection = section != null ? section.getConfigurationSection(path) : null;
+        if (groupsSection == null) return Map.of();
 
-        autoFlags.clear();
-        var flagRegistry = WorldGuard.getInstance().getFlagRegistry();
-
-        for (var flagName : flagsSection.getKeys(false)) {
-            var flag = Flags.fuzzyMatchFlag(flagRegistry, flagName);
-            if (flag != null) {
-                var value = flagsSection.getString(flagName);
-                if (value != null) {
-                    autoFlags.put(flag, value);
-                }
+        var groups = new LinkedHashMap<String, AutoFlagTemplate>();
+        for (var group : groupsSection.getKeys(false)) {
+            var template = parseAutoFlags(groupsSection, group);
+            if (!template.isEmpty()) {
+                groups.put(group, template);
             }
         }
+        return groups;
     }
 
-    private void loadRegionProtectionSettings() {
-        var section = config.getConfigurationSection("features.region-protection");
-        if (section == null) {
-            setDefaultProtectionSettings();
-            return;
-        }
-
-        this.fireSpreadProtection = section.getBoolean("fire-spread", false);
-        this.blockBurnProtection = section.getBoolean("block-burn", false);
-
+    private ExplosionMode parseExplosionMode(ConfigurationSection section) {
         var explosionModeString = section.getString("explosion-mode", "DISABLED").toUpperCase();
         try {
-            this.explosionMode = ExplosionMode.valueOf(explosionModeString);
+            return ExplosionMode.valueOf(explosionModeString);
         } catch (IllegalArgumentException e) {
             plugin.getLogger().warning("Invalid explosion mode: " + explosionModeString + ". Using DISABLED.");
-            this.explosionMode = ExplosionMode.UNTOUCHED;
+            return ExplosionMode.UNTOUCHED;
         }
-
-        var commands = section.getStringList("restrict-commands.commands");
-        this.restrictedCommands = new HashSet<>(commands);
-    }
-
-    private void loadUpdateSettings() {
-        this.checkUpdates = config.getBoolean("check-updates", true);
-    }
-
-    private void setDefaultProtectionSettings() {
-        this.fireSpreadProtection = false;
-        this.blockBurnProtection = false;
-        this.explosionMode = ExplosionMode.UNTOUCHED;
-        this.restrictedCommands = new HashSet<>();
     }
 
-    private void setDefaultUpdateSettings() {
-        this.checkUpdates = true;
-    }
-
-    private void setDefaults() {
-        this.verticalExpandEnabled = false;
-        this.economyEnabled = false;
-        this.defaultHorizontalPricePerBlock = 0.1;
-        this.defaultVerticalPricePerBlock = 0.00005;
-        setDefaultProtectionSettings();
-        setDefaultUpdateSettings();
-    }
-
-    private BigInteger getBigInteger(ConfigurationSection section, String key, BigInteger defaultValue) {
+    private long getLong(ConfigurationSection section, String key, long defaultValue) {
         var value = section.getString(key);
         if (value == null) return defaultValue;
 
         try {
-            return new BigInteger(value);
+            var parsed = new BigInteger(value.trim());
+            // Limits beyond the long range can never be met or always are, clamping keeps that
+            return parsed.max(BigInteger.valueOf(Long.MIN_VALUE)).min(BigInteger.valueOf(Long.MAX_VALUE)).longValue();
         } catch (NumberFormatException e) {
             return defaultValue;
         }
     }
 
-    public boolean isVerticalExpandEnabled() { return verticalExpandEnabled; }
-    public BigInteger getMinHorizontal() { return minHorizontal; }
-    public BigInteger getMinVertical() { return minVertical; }
-    public boolean isEconomyEnabled() { return economyEnabled; }
-    public double getDefaultHorizontalPricePerBlock() { return defaultHorizontalPricePerBlock; }
-    public double getDefaultVerticalPricePerBlock() { return defaultVerticalPricePerBlock; }
-    public int getConfirmationTimeoutSeconds() { return confirmationTimeoutSeconds; }
-    public Map<String, PricingTier> getPricePermissions() { return Map.copyOf(pricePermissions); }
-    public boolean showAutoFlagMessages() { return showAutoFlagMessages; }
-    public Map<Flag<?>, String> getAutoFlags() { return Map.copyOf(autoFlags); }
-    public boolean isFireSpreadProtection() { return fireSpreadProtection; }
-    public boolean isBlockBurnProtection() { return blockBurnProtection; }
-    public ExplosionMode getExplosionMode() { return explosionMode; }
-    public Set<String> getRestrictedCommands() { return Set.copyOf(restrictedCommands); }
-
-    public boolean isCheckUpdatesEnabled() { return checkUpdates; }
+    public boolean isVerticalExpandEnabled() { return snapshot.verticalExpandEnabled(); }
+    public long getMinHorizontal() { return snapshot.minHorizontal(); }
+    public long getMinVertical() { return snapshot.minVertical(); }
+    public boolean isEconomyEnabled() { return snapshot.economyEnabled(); }
+    public double getDefaultHorizontalPricePerBlock() { return snapshot.defaultHorizontalPricePerBlock(); }
+    public double getDefaultVerticalPricePerBlock() { return snapshot.defaultVerticalPricePerBlock(); }
+    public int getConfirmationTimeoutSeconds() { return snapshot.confirmationTimeoutSeconds(); }
+    public Map<String, PricingTier> getPricePermissions() { return snapshot.pricePermissions(); }
+
+    /**
+     * Gets the pricing tiers keyed by their full permission node, built once per load.
+     */
+    public Map<String, PricingTier> getPricingNodes() { return snapshot.pricingNodes(); }
+    public boolean showAutoFlagMessages() { return snapshot.showAutoFlagMessages(); }
+
+    /**
+     * Gets the auto flags of new regions in a world, including the flags of all worlds.
+     */
+    public AutoFlagTemplate getAutoFlags(String worldName) { return snapshot.autoFlagsFor(worldName); }
+
+    /**
+     * Gets the extra auto flags of pricing tiers, keyed by their full permission node in configured order.
+     */
+    public Map<String, AutoFlagTemplate> getTierAutoFlags() { return snapshot.tierAutoFlags(); }
+    public boolean isFireSpreadProtection() { return snapshot.fireSpreadProtection(); }
+    public boolean isBlockBurnProtection() { return snapshot.blockBurnProtection(); }
+    public ExplosionMode getExplosionMode() { return snapshot.explosionMode(); }
+    public Set<String> getRestrictedCommands() { return snapshot.restrictedCommands(); }
+    public int getSkullMatchWindowSeconds() { return snapshot.skullMatchWindowSeconds(); }
+    public int getSkullRetentionSeconds() { return snapshot.skullRetentionSeconds(); }
+
+    public boolean isCheckUpdatesEnabled() { return snapshot.checkUpdates(); }
+
+    public int getOwnerCacheSize() { return snapshot.ownerCacheSize(); }
+    public int getOwnerCacheTtlSeconds() { return snapshot.ownerCacheTtlSeconds(); }
+    public int getPricingCacheTtlSeconds() { return snapshot.pricingCacheTtlSeconds(); }
+    public int getRegionIndexRebuildIntervalSeconds() { return snapshot.regionIndexRebuildIntervalSeconds(); }
+    public int getRegionSaveIntervalSeconds() { return snapshot.regionSaveIntervalSeconds(); }
 }
\ No newline at end of file
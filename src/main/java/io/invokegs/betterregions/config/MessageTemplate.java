@@ -0,0 +1,95 @@
+package io.invokegs.betterregions.config;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextReplacementConfig;
+import net.kyori.adventure.text.minimessage.Context;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.Tag;
+import net.kyori.adventure.text.minimessage.tag.resolver.ArgumentQueue;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+import net.kyori.adventure.text.minimessage.tag.standard.StandardTags;
+import org.jspecify.annotations.Nullable;
+
+import java.util.regex.Pattern;
+
+/**
+ * A message parsed once from MiniMessage markup. Placeholder tags are compiled into slot markers
+ * carrying the style of their position, so rendering only replaces the slots with plain text
+ * and never parses markup again. Immutable and safe to render from any thread.
+ */
+final class MessageTemplate {
+    private static final char SLOT_START = '\uE000';
+    private static final char SLOT_END = '\uE001';
+    private static final Pattern SLOT_PATTERN = Pattern.compile(SLOT_START + "([^" + SLOT_END + "]+)" + SLOT_END);
+    private static final TagResolver STANDARD_TAGS = StandardTags.defaults();
+
+    /**
+     * Turns every tag that is not a standard MiniMessage tag into a slot.
+     */
+    private static final class SlotResolver implements TagResolver {
+        private boolean found;
+
+        @Override
+        public @Nullable Tag resolve(String name, ArgumentQueue arguments, Context ctx) {
+            if (!has(name)) return null;
+
+            found = true;
+            return Tag.selfClosingInserting(Component.text(SLOT_START + name + SLOT_END));
+        }
+
+        @Override
+        public boolean has(String name) {
+            return !STANDARD_TAGS.has(name);
+        }
+    }
+
+    private final Component component;
+    private final boolean hasSlots;
+
+    private MessageTemplate(Component component, boolean hasSlots) {
+        this.component = component;
+        this.hasSlots = hasSlots;
+    }
+
+    /**
+     * Compiles MiniMessage markup.
+     * @param miniMessage the parser
+     * @param markup the message markup
+     * @return the template
+     */
+    static MessageTemplate compile(MiniMessage miniMessage, String markup) {
+        var slots = new SlotResolver();
+        var component = miniMessage.deserialize(markup, slots);
+        return new MessageTemplate(component, slots.found);
+    }
+
+    /**
+     * Gets this template with a component prepended, e.g. the message prefix.
+     */
+    MessageTemplate prefixedWith(Component prefix) {
+        return new MessageTemplate(prefix.append(component), hasSlots);
+    }
+
+    /**
+     * Renders this template. Slots without a value are rendered as the tag they were written as.
+     * @param placeholders alternating placeholder names and values
+     * @return the message
+     */
+    Component render(String... placeholders) {
+        if (!hasSlots) return component;
+
+        return component.replaceText(TextReplacementConfig.builder()
+                .match(SLOT_PATTERN)
+                .replacement((match, builder) -> builder.content(valueOf(match.group(1), placeholders)))
+                .build());
+    }
+
+    private static String valueOf(String name, String[] placeholders) {
+        for (var i = 0; i + 1 < placeholders.length; i += 2) {
+            if (placeholders[i].equals(name)) {
+                return placeholders[i + 1];
+            }
+        }
+        return "<" + name + ">";
+    }
+}
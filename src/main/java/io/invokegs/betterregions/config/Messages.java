@@ -2,25 +2,32 @@ package io.invokegs.betterregions.config;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
-import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
-import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.Plugin;
+import org.jspecify.annotations.Nullable;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
 
 public final class Messages {
-    private final Map<String, Component> cachedMessages = new HashMap<>();
     private final Plugin plugin;
     private final Configuration config;
     private final File messagesFile;
     private final MiniMessage miniMessage;
-    private YamlConfiguration messages;
-    private Component prefix;
+    private volatile Templates templates = new Templates(Map.of(), Map.of());
+
+    /**
+     * Compiled messages of one load, published at once so renderers on any thread see a complete set.
+     * @param prefixed the templates with the configured prefix
+     * @param plain the templates without prefix
+     */
+    private record Templates(Map<String, MessageTemplate> prefixed, Map<String, MessageTemplate> plain) {}
 
     public Messages(Plugin plugin, Configuration config) {
         this.plugin = plugin;
@@ -47,34 +54,68 @@ public final class Messages {
 
     private void load() {
         try {
-            this.cachedMessages.clear();
-            this.messages = YamlConfiguration.loadConfiguration(messagesFile);
-            this.prefix = parseMessage("prefix");
+            var messages = YamlConfiguration.loadConfiguration(messagesFile);
+            var plain = new HashMap<String, MessageTemplate>();
+            // Messages added or renamed since the file was saved fall back to the bundled text
+            var bundled = loadBundledMessages();
+            if (bundled != null) {
+                compileStrings(bundled, plain);
+            }
+            compileStrings(messages, plain);
+
+            var prefixTemplate = plain.get("prefix");
+            var prefix = prefixTemplate != null ? prefixTemplate.render() : missing("prefix").render();
+            var prefixed = new HashMap<String, MessageTemplate>();
+            plain.forEach((key, template) -> prefixed.put(key, template.prefixedWith(prefix)));
+
+            this.templates = new Templates(Map.copyOf(prefixed), Map.copyOf(plain));
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "Failed to load messages", e);
         }
     }
 
+    private @Nullable YamlConfiguration loadBundledMessages() {
+        var resource = plugin.getResource("messages.yml");
+        if (resource == null) return null;
+
+        try (var reader = new InputStreamReader(resource, StandardCharsets.UTF_8)) {
+            return YamlConfiguration.loadConfiguration(reader);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to read bundled messages", e);
+            return null;
+        }
+    }
+
+    private void compileStrings(YamlConfiguration messages, Map<String, MessageTemplate> templates) {
+        for (var key : messages.getKeys(true)) {
+            if (messages.isString(key)) {
+                templates.put(key, MessageTemplate.compile(miniMessage, messages.getString(key, "")));
+            }
+        }
+    }
+
     /**
      * Gets a message component with the configured prefix.
+     * @param key the message key
+     * @param placeholders alternating placeholder names and values
      */
-    public Component getMessage(String key, TagResolver... resolvers) {
-        if (resolvers.length == 0) {
-            return cachedMessages.computeIfAbsent(key, k -> prefix.append(parseMessage(key)));
-        }
-        return prefix.append(parseMessage(key, resolvers));
+    public Component getMessage(String key, String... placeholders) {
+        var template = templates.prefixed().get(key);
+        return template != null ? template.render(placeholders) : missing(key).render();
     }
 
     /**
      * Gets a message component without prefix.
+     * @param key the message key
+     * @param placeholders alternating placeholder names and values
      */
-    public Component getMessageWithoutPrefix(String key, TagResolver... resolvers) {
-        return parseMessage(key, resolvers);
+    public Component getMessageWithoutPrefix(String key, String... placeholders) {
+        var template = templates.plain().get(key);
+        return template != null ? template.render(placeholders) : missing(key).render();
     }
 
-    private Component parseMessage(String key, TagResolver... resolvers) {
-        var messageText = messages.getString(key, "<red>Missing message: " + key);
-        return miniMessage.deserialize(messageText, TagResolver.resolver(resolvers));
+    private MessageTemplate missing(String key) {
+        return MessageTemplate.compile(miniMessage, "<red>Missing message: " + key);
     }
 
     public Component noPermission() {
@@ -94,15 +135,15 @@ public final class Messages {
     }
 
     public Component invalidRegionName(String regionName) {
-        return getMessage("regions.invalid-name", Placeholder.unparsed("region", regionName));
+        return getMessage("regions.invalid-name", "region", regionName);
     }
 
     public Component regionAlreadyExists(String regionName) {
-        return getMessage("regions.already-exists", Placeholder.unparsed("region", regionName));
+        return getMessage("regions.already-exists", "region", regionName);
     }
 
     public Component regionNotExists(String regionName) {
-        return getMessage("regions.not-exists", Placeholder.unparsed("region", regionName));
+        return getMessage("regions.not-exists", "region", regionName);
     }
 
     public Component tooManyRegions() {
@@ -115,8 +156,8 @@ public final class Messages {
 
     public Component regionTooLarge(long currentVolume, long maxVolume) {
         return getMessage("regions.too-large",
-                Placeholder.unparsed("current", String.valueOf(currentVolume)),
-                Placeholder.unparsed("max", String.valueOf(maxVolume))
+                "current", String.valueOf(currentVolume),
+                "max", String.valueOf(maxVolume)
         );
     }
 
@@ -141,26 +182,26 @@ public final class Messages {
     }
 
     public Component claimSuccess(String regionName) {
-        return getMessage("success.claim", Placeholder.unparsed("region", regionName));
+        return getMessage("success.claim", "region", regionName);
     }
 
     public Component redefineSuccess(String regionName) {
-        return getMessage("success.redefine", Placeholder.unparsed("region", regionName));
+        return getMessage("success.redefine", "region", regionName);
     }
 
     public Component verticalExpansionApplied() {
         return getMessage("vertical-expansion-applied");
     }
 
-    public Component regionTooSmall(BigInteger currentX, BigInteger currentY, BigInteger currentZ,
-                                    BigInteger minX, BigInteger minY, BigInteger minZ) {
+    public Component regionTooSmall(long currentX, long currentY, long currentZ,
+                                    long minX, long minY, long minZ) {
         return getMessage("limits.region-too-small",
-                Placeholder.unparsed("current_x", currentX.toString()),
-                Placeholder.unparsed("current_y", currentY.toString()),
-                Placeholder.unparsed("current_z", currentZ.toString()),
-                Placeholder.unparsed("min_x", minX.toString()),
-                Placeholder.unparsed("min_y", minY.toString()),
-                Placeholder.unparsed("min_z", minZ.toString())
+                "current_x", String.valueOf(currentX),
+                "current_y", String.valueOf(currentY),
+                "current_z", String.valueOf(currentZ),
+                "min_x", String.valueOf(minX),
+                "min_y", String.valueOf(minY),
+                "min_z", String.valueOf(minZ)
         );
     }
 
@@ -170,27 +211,20 @@ public final class Messages {
 
     public Component insufficientFunds(String required, String balance) {
         return getMessage("economy.insufficient-funds",
-                Placeholder.unparsed("required", required),
-                Placeholder.unparsed("balance", balance)
+                "required", required,
+                "balance", balance
         );
     }
 
     public Component insufficientFundsDetailed(String totalCost, String horizontalCost, String verticalCost,
                                                BigInteger horizontalBlocks, BigInteger verticalBlocks, String balance) {
         return getMessage("economy.insufficient-funds-detailed",
-                Placeholder.unparsed("total_cost", totalCost),
-                Placeholder.unparsed("horizontal_cost", horizontalCost),
-                Placeholder.unparsed("vertical_cost", verticalCost),
-                Placeholder.unparsed("horizontal_blocks", horizontalBlocks.toString()),
-                Placeholder.unparsed("vertical_blocks", verticalBlocks.toString()),
-                Placeholder.unparsed("balance", balance)
-        );
-    }
-
-    public Component paymentFailedAfterCommand(String required, String balance) {
-        return getMessage("economy.payment-failed-after-command",
-                Placeholder.unparsed("required", required),
-                Placeholder.unparsed("balance", balance)
+                "total_cost", totalCost,
+                "horizontal_cost", horizontalCost,
+                "vertical_cost", verticalCost,
+                "horizontal_blocks", horizontalBlocks.toString(),
+                "vertical_blocks", verticalBlocks.toString(),
+                "balance", balance
         );
     }
 
@@ -198,13 +232,13 @@ public final class Messages {
                                           BigInteger horizontalBlocks, BigInteger verticalBlocks, String balance,
                                           String timeout) {
         return getMessage("economy.confirmation-required",
-                Placeholder.unparsed("total_cost", totalCost),
-                Placeholder.unparsed("horizontal_cost", horizontalCost),
-                Placeholder.unparsed("vertical_cost", verticalCost),
-                Placeholder.unparsed("horizontal_blocks", horizontalBlocks.toString()),
-                Placeholder.unparsed("vertical_blocks", verticalBlocks.toString()),
-                Placeholder.unparsed("balance", balance),
-                Placeholder.unparsed("timeout", timeout)
+                "total_cost", totalCost,
+                "horizontal_cost", horizontalCost,
+                "vertical_cost", verticalCost,
+                "horizontal_blocks", horizontalBlocks.toString(),
+                "vertical_blocks", verticalBlocks.toString(),
+                "balance", balance,
+                "timeout", timeout
         );
     }
 
@@ -224,20 +258,24 @@ public final class Messages {
         return getMessage("economy.selection-lost");
     }
 
+    public Component regionsChanged() {
+        return getMessage("economy.regions-changed");
+    }
+
     public Component paymentProcessed(String totalAmount, String horizontalAmount, String verticalAmount,
                                       BigInteger horizontalBlocks, BigInteger verticalBlocks) {
         return getMessage("economy.payment-processed",
-                Placeholder.unparsed("total_amount", totalAmount),
-                Placeholder.unparsed("horizontal_amount", horizontalAmount),
-                Placeholder.unparsed("vertical_amount", verticalAmount),
-                Placeholder.unparsed("horizontal_blocks", horizontalBlocks.toString()),
-                Placeholder.unparsed("vertical_blocks", verticalBlocks.toString())
+                "total_amount", totalAmount,
+                "horizontal_amount", horizontalAmount,
+                "vertical_amount", verticalAmount,
+                "horizontal_blocks", horizontalBlocks.toString(),
+                "vertical_blocks", verticalBlocks.toString()
         );
     }
 
     public Component autoFlagsApplied(String regionName) {
         return getMessage("auto-flags.applied",
-                Placeholder.unparsed("region", regionName)
+                "region", regionName
         );
     }
 
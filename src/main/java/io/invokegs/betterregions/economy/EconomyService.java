@@ -1,17 +1,17 @@
 package io.invokegs.betterregions.economy;
 
-import com.sk89q.worldedit.IncompleteRegionException;
-import com.sk89q.worldedit.bukkit.BukkitAdapter;
-import com.sk89q.worldedit.bukkit.WorldEditPlugin;
-import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldguard.protection.regions.GlobalProtectedRegion;
 import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import io.invokegs.betterregions.config.Configuration;
 import io.invokegs.betterregions.config.Messages;
+import io.invokegs.betterregions.integration.AsyncEconomy;
+import io.invokegs.betterregions.integration.ClaimContext;
+import io.invokegs.betterregions.integration.RegionIndex;
 import io.invokegs.betterregions.integration.VaultIntegration;
 import io.invokegs.betterregions.integration.WorldGuardIntegration;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitTask;
@@ -19,40 +19,103 @@ import org.jspecify.annotations.Nullable;
 
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 public final class EconomyService {
+    private static final long EXPIRY_SWEEP_INTERVAL_TICKS = 20L;
 
     private final VaultIntegration vault;
+    private final AsyncEconomy economy;
     private final Configuration config;
     private final Messages messages;
     private final Plugin plugin;
     private final WorldGuardIntegration worldGuard;
+    private final RegionIndex regionIndex;
     private final Map<UUID, PendingAction> pendingActions;
-
-    public EconomyService(VaultIntegration vault, Configuration config, Messages messages, Plugin plugin) {
+    private final Deque<Expiry> expiryQueue = new ArrayDeque<>();
+    private @Nullable BukkitTask expirySweeper;
+    private final QuoteCache quotes = new QuoteCache();
+    private final PricingTierCache pricingTiers;
+    private final Executor mainThreadExecutor;
+    private final Executor workerExecutor;
+
+    public EconomyService(VaultIntegration vault, AsyncEconomy economy, Configuration config, Messages messages,
+                          Plugin plugin, RegionIndex regionIndex) {
         this.vault = vault;
+        this.economy = economy;
         this.config = config;
         this.messages = messages;
         this.plugin = plugin;
+        this.regionIndex = regionIndex;
         this.worldGuard = new WorldGuardIntegration();
         this.pendingActions = new ConcurrentHashMap<>();
+        this.pricingTiers = new PricingTierCache(config);
+        this.mainThreadExecutor = task -> Bukkit.getScheduler().runTask(plugin, task);
+        this.workerExecutor = task -> Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
     }
 
     public void setup() {
         worldGuard.setup();
+        plugin.getServer().getPluginManager().registerEvents(pricingTiers, plugin);
+        this.expirySweeper = Bukkit.getScheduler()
+                .runTaskTimer(plugin, this::expirePendingActions, EXPIRY_SWEEP_INTERVAL_TICKS, EXPIRY_SWEEP_INTERVAL_TICKS);
     }
 
     public record RegionBounds(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        /**
+         * Gets the block count of these bounds.
+         * @throws ArithmeticException if the volume does not fit in a long
+         */
+        public long volume() {
+            return Math.multiplyExact(Math.multiplyExact(width(), height()), length());
+        }
+
+        /**
+         * Gets the footprint block count of these bounds.
+         * @throws ArithmeticException if the area does not fit in a long
+         */
+        public long horizontalArea() {
+            return Math.multiplyExact(width(), length());
+        }
+
         public BigInteger getVolume() {
-            return BigInteger.valueOf(maxX - minX + 1)
-                    .multiply(BigInteger.valueOf(maxY - minY + 1))
-                    .multiply(BigInteger.valueOf(maxZ - minZ + 1));
+            return BigInteger.valueOf(width())
+                    .multiply(BigInteger.valueOf(height()))
+                    .multiply(BigInteger.valueOf(length()));
         }
 
         public BigInteger getHorizontalArea() {
-            return BigInteger.valueOf(maxX - minX + 1)
-                    .multiply(BigInteger.valueOf(maxZ - minZ + 1));
+            return BigInteger.valueOf(width())
+                    .multiply(BigInteger.valueOf(length()));
+        }
+
+        /**
+         * Gets these bounds reduced to their bottom layer.
+         */
+        public RegionBounds flatten() {
+            return flattenAt(minY);
+        }
+
+        /**
+         * Gets these bounds reduced to a single layer at the given height.
+         */
+        public RegionBounds flattenAt(int y) {
+            return new RegionBounds(minX, y, minZ, maxX, y, maxZ);
+        }
+
+        private long width() {
+            return (long) maxX - minX + 1;
+        }
+
+        private long height() {
+            return (long) maxY - minY + 1;
+        }
+
+        private long length() {
+            return (long) maxZ - minZ + 1;
         }
 
         public @Nullable RegionBounds intersect(RegionBounds other) {
@@ -84,14 +147,29 @@ public final class EconomyService {
             String[] args,
             CostInfo costInfo,
             String regionName,
-            Region originalSelection,
-            BukkitTask timeoutTask,
-            boolean paymentProcessed
+            ClaimContext.Selection originalSelection,
+            long expiresAt
     ) {
     }
 
+    /**
+     * Entry of the expiry queue. Entries are not removed when their action is confirmed or replaced,
+     * the sweeper skips them instead.
+     * @param playerId the player of the action
+     * @param expiresAt the {@link System#nanoTime()} at which the action expires
+     */
+    private record Expiry(UUID playerId, long expiresAt) {
+    }
+
     public sealed interface ProcessResult permits ProcessResult.Allow, ProcessResult.Deny, ProcessResult.AwaitingConfirmation {
-        record Allow() implements ProcessResult {
+        /**
+         * Allows the region command.
+         * @param payment the payment the command must commit or refund, free unless the cost was confirmed
+         */
+        record Allow(Payment payment) implements ProcessResult {
+            public Allow() {
+                this(Payment.FREE);
+            }
         }
 
         record Deny(Component reason) implements ProcessResult {
@@ -101,129 +179,227 @@ public final class EconomyService {
         }
     }
 
-    public ProcessResult processCommand(Player player, String command, String[] args) {
+    /**
+     * Everything needed to price a region command, captured on the server thread so the
+     * geometry can be computed on a worker thread.
+     * @param key the quote cache key, including the region version the snapshot was taken at
+     * @param world the world of the selection
+     * @param oldBounds the current bounds of the redefined region, or null for new regions
+     * @param otherBounds the bounds of the other regions overlapping the old or new bounds
+     */
+    private record QuoteRequest(QuoteCache.Key key, World world, @Nullable RegionBounds oldBounds,
+                                List<RegionBounds> otherBounds) {
+    }
+
+    /**
+     * Prices a region command. The selection and the overlapping regions are captured on the
+     * server thread, the cost is computed on a worker thread, and the returned future completes
+     * back on the server thread. The result is discarded if a region in the world changed meanwhile.
+     * @param context the context of the command
+     * @param command the region command
+     * @param args the command arguments
+     * @return the result, completed on the server thread
+     */
+    public CompletableFuture<ProcessResult> processCommand(ClaimContext context, String command, String[] args) {
         if (!config.isEconomyEnabled() || !vault.isEconomyAvailable()) {
-            return vault.isEconomyAvailable() ? new ProcessResult.Allow() :
-                    new ProcessResult.Deny(messages.economyNotAvailable());
+            return CompletableFuture.completedFuture(vault.isEconomyAvailable() ? new ProcessResult.Allow() :
+                    new ProcessResult.Deny(messages.economyNotAvailable()));
         }
 
-        if (player.hasPermission("betterregions.economy.bypass")) {
-            return new ProcessResult.Allow();
+        if (context.economyBypass()) {
+            return CompletableFuture.completedFuture(new ProcessResult.Allow());
         }
 
+        var player = context.player();
         cancelPendingAction(player);
 
-        var costInfo = calculateCost(player, command, args);
-        if (costInfo == null || costInfo.totalCost() <= 0) {
-            return new ProcessResult.Allow();
+        var selection = context.selection();
+        if (selection == null) {
+            return CompletableFuture.completedFuture(new ProcessResult.Allow());
         }
 
-        if (!vault.hasBalance(player, costInfo.totalCost())) {
-            return new ProcessResult.Deny(messages.insufficientFundsDetailed(
-                    vault.formatCurrency(costInfo.totalCost()),
-                    vault.formatCurrency(costInfo.horizontalCost()),
-                    vault.formatCurrency(costInfo.verticalCost()),
-                    costInfo.horizontalBlocks(),
-                    costInfo.verticalBlocks(),
-                    vault.formatCurrency(vault.getBalance(player))
-            ));
+        var request = createQuoteRequest(context, selection, command, args);
+        if (request == null) {
+            return CompletableFuture.completedFuture(new ProcessResult.Allow());
         }
 
-        try {
-            var selection = getPlayerSelection(player);
-            if (selection != null) {
-                createPendingAction(player, command, args, costInfo, selection);
-                return new ProcessResult.AwaitingConfirmation();
+        return quote(request).thenCompose(costInfo -> {
+            if (!player.isOnline()) {
+                return CompletableFuture.completedFuture(new ProcessResult.Deny(messages.actionCancelled()));
             }
-        } catch (Exception ignored) {
-        }
+            if (isStale(request)) {
+                return CompletableFuture.completedFuture(new ProcessResult.Deny(messages.regionsChanged()));
+            }
+            if (!context.isSelectionCurrent()) {
+                return CompletableFuture.completedFuture(new ProcessResult.Deny(messages.selectionChanged()));
+            }
+            if (costInfo == null || costInfo.totalCost() <= 0) {
+                return CompletableFuture.completedFuture(new ProcessResult.Allow());
+            }
+
+            // One balance read serves both the check and the message
+            return economy.getBalance(player).thenApplyAsync(balance -> {
+                if (!player.isOnline()) {
+                    return new ProcessResult.Deny(messages.actionCancelled());
+                }
+
+                if (balance < costInfo.totalCost()) {
+                    return new ProcessResult.Deny(messages.insufficientFundsDetailed(
+                            vault.formatCurrency(costInfo.totalCost()),
+                            vault.formatCurrency(costInfo.horizontalCost()),
+                            vault.formatCurrency(costInfo.verticalCost()),
+                            costInfo.horizontalBlocks(),
+                            costInfo.verticalBlocks(),
+                            vault.formatCurrency(balance)
+                    ));
+                }
 
-        return new ProcessResult.Allow();
+                createPendingAction(player, command, args, costInfo, selection, balance);
+                return new ProcessResult.AwaitingConfirmation();
+            }, mainThreadExecutor);
+        });
     }
 
-    public ProcessResult handleConfirmation(Player player, boolean confirm) {
+    /**
+     * Confirms the pending action of a player. The cost is taken from the quote cache
+     * and recomputed on a worker thread only if a region in the world changed since the quote.
+     * A confirmed cost is withdrawn into escrow before the result completes, and the allowed
+     * result carries the held payment, so the region command is paid for without calling the
+     * economy provider.
+     * @param context the context of the confirming player
+     * @return the result, completed on the server thread
+     */
+    public CompletableFuture<ProcessResult> handleConfirmation(ClaimContext context) {
+        var player = context.player();
         var action = pendingActions.get(player.getUniqueId());
         if (action == null) {
-            return new ProcessResult.Deny(messages.noPendingAction());
+            return CompletableFuture.completedFuture(new ProcessResult.Deny(messages.noPendingAction()));
         }
 
-        if (!confirm) {
-            removePendingAction(player);
-            return new ProcessResult.Deny(messages.actionCancelled());
-        }
-
-        try {
-            var currentSelection = getPlayerSelection(player);
-            if (currentSelection == null || !selectionsMatch(action.originalSelection(), currentSelection)) {
-                removePendingAction(player);
-                return new ProcessResult.Deny(messages.selectionChanged());
-            }
-        } catch (Exception e) {
+        var currentSelection = context.selection();
+        if (currentSelection == null) {
             removePendingAction(player);
-            return new ProcessResult.Deny(messages.selectionLost());
+            return CompletableFuture.completedFuture(new ProcessResult.Deny(messages.selectionLost()));
         }
-
-        var freshCostInfo = calculateCost(player, action.command(), action.args());
-        if (freshCostInfo == null || freshCostInfo.totalCost() <= 0) {
+        if (!currentSelection.equals(action.originalSelection())) {
             removePendingAction(player);
-            return new ProcessResult.Allow();
+            return CompletableFuture.completedFuture(new ProcessResult.Deny(messages.selectionChanged()));
         }
 
-        if (!vault.hasBalance(player, freshCostInfo.totalCost())) {
+        var request = createQuoteRequest(context, currentSelection, action.command(), action.args());
+        if (request == null) {
             removePendingAction(player);
-            return new ProcessResult.Deny(messages.insufficientFunds(
-                    vault.formatCurrency(freshCostInfo.totalCost()),
-                    vault.formatCurrency(vault.getBalance(player))
-            ));
+            return CompletableFuture.completedFuture(new ProcessResult.Allow());
         }
 
-        var updatedAction = new PendingAction(
-                action.command(), action.args(), freshCostInfo, action.regionName(),
-                action.originalSelection(), action.timeoutTask(), false
-        );
-        pendingActions.put(player.getUniqueId(), updatedAction);
+        return quote(request).thenCompose(freshCostInfo -> {
+            // Another confirm, cancel or claim took over while the cost was computed
+            if (!player.isOnline() || pendingActions.get(player.getUniqueId()) != action) {
+                return CompletableFuture.completedFuture(new ProcessResult.Deny(messages.noPendingAction()));
+            }
+            if (isStale(request)) {
+                removePendingAction(player);
+                return CompletableFuture.completedFuture(new ProcessResult.Deny(messages.regionsChanged()));
+            }
+            if (freshCostInfo == null || freshCostInfo.totalCost() <= 0) {
+                removePendingAction(player);
+                return CompletableFuture.completedFuture(new ProcessResult.Allow());
+            }
 
-        return new ProcessResult.Allow();
+            return economy.hold(player, freshCostInfo.totalCost())
+                    .thenComposeAsync(hold -> holdPlaced(player, action, request, freshCostInfo, hold), mainThreadExecutor);
+        });
     }
 
-    public boolean processPaymentAfterSuccess(Player player) {
-        var action = pendingActions.remove(player.getUniqueId());
-        if (action == null || action.paymentProcessed()) {
-            return true;
+    /**
+     * Cancels the pending action of a player.
+     * @param player the player
+     * @return the result, always a denial carrying the message to show
+     */
+    public ProcessResult handleCancellation(Player player) {
+        var action = pendingActions.get(player.getUniqueId());
+        if (action == null) {
+            return new ProcessResult.Deny(messages.noPendingAction());
         }
 
-        action.timeoutTask().cancel();
-        var totalCost = action.costInfo().totalCost();
+        removePendingAction(player);
+        return new ProcessResult.Deny(messages.actionCancelled());
+    }
+
+    private CompletableFuture<ProcessResult> holdPlaced(Player player, PendingAction action, QuoteRequest request,
+                                                        CostInfo costInfo, AsyncEconomy.@Nullable Hold hold) {
+        if (hold == null) {
+            removePendingAction(player);
+            return economy.getBalance(player).thenApplyAsync(balance -> new ProcessResult.Deny(messages.insufficientFunds(
+                    vault.formatCurrency(costInfo.totalCost()),
+                    vault.formatCurrency(balance)
+            )), mainThreadExecutor);
+        }
 
-        if (totalCost <= 0) {
-            return true;
+        if (!player.isOnline() || pendingActions.get(player.getUniqueId()) != action) {
+            economy.release(hold);
+            return CompletableFuture.completedFuture(new ProcessResult.Deny(messages.noPendingAction()));
+        }
+        // Regions may have changed while the money was withdrawn
+        if (isStale(request)) {
+            economy.release(hold);
+            removePendingAction(player);
+            return CompletableFuture.completedFuture(new ProcessResult.Deny(messages.regionsChanged()));
         }
 
-        if (!vault.withdraw(player, totalCost)) {
-            player.sendMessage(messages.paymentFailedAfterCommand(
-                    vault.formatCurrency(totalCost),
-                    vault.formatCurrency(vault.getBalance(player))
-            ));
-            return false;
+        // The hold now belongs to the confirmed command, so the action must not release it
+        pendingActions.remove(player.getUniqueId());
+        return CompletableFuture.completedFuture(new ProcessResult.Allow(new Payment(hold.amount(), costInfo, hold)));
+    }
+
+    /**
+     * Payment taken for a region command before the region is changed. Every allowed command
+     * must pass its payment to {@link #commitPayment} once the region is changed, or to
+     * {@link #refundPayment} if it was not.
+     * @param amount the withdrawn amount, zero for free actions
+     * @param costInfo the cost breakdown, or null for free actions
+     * @param hold the escrow holding the amount, or null for free actions
+     */
+    public record Payment(double amount, @Nullable CostInfo costInfo, AsyncEconomy.@Nullable Hold hold) {
+        private static final Payment FREE = new Payment(0, null, null);
+    }
+
+    /**
+     * Confirms a payment after the region was changed.
+     * @param player the player
+     * @param payment the payment of the allowed command
+     */
+    public void commitPayment(Player player, Payment payment) {
+        var hold = payment.hold();
+        if (hold != null) {
+            economy.capture(hold);
         }
 
-        var costInfo = action.costInfo();
+        var costInfo = payment.costInfo();
+        if (costInfo == null || payment.amount() <= 0) return;
+
         player.sendMessage(messages.paymentProcessed(
-                vault.formatCurrency(totalCost),
+                vault.formatCurrency(payment.amount()),
                 vault.formatCurrency(costInfo.horizontalCost()),
                 vault.formatCurrency(costInfo.verticalCost()),
                 costInfo.horizontalBlocks(),
                 costInfo.verticalBlocks()
         ));
+    }
 
-        return true;
+    /**
+     * Returns a payment after changing the region failed or was not attempted.
+     * @param payment the payment of the allowed command
+     */
+    public void refundPayment(Payment payment) {
+        var hold = payment.hold();
+        if (hold != null) {
+            economy.release(hold);
+        }
     }
 
     public void cancelPendingAction(Player player) {
-        var action = pendingActions.remove(player.getUniqueId());
-        if (action != null) {
-            action.timeoutTask().cancel();
-        }
+        pendingActions.remove(player.getUniqueId());
     }
 
     public @Nullable PendingAction getPendingAction(Player player) {
@@ -231,307 +407,328 @@ public final class EconomyService {
     }
 
     public void reload() {
-        cleanup();
+        reset();
     }
 
     public void cleanup() {
-        pendingActions.values().forEach(action -> action.timeoutTask().cancel());
+        if (expirySweeper != null) {
+            expirySweeper.cancel();
+            expirySweeper = null;
+        }
+        reset();
+    }
+
+    private void reset() {
         pendingActions.clear();
+        expiryQueue.clear();
+        quotes.clear();
+        pricingTiers.clear();
     }
 
     private void removePendingAction(Player player) {
-        var action = pendingActions.remove(player.getUniqueId());
-        if (action != null) {
-            action.timeoutTask().cancel();
+        pendingActions.remove(player.getUniqueId());
+    }
+
+    /**
+     * Drops expired pending actions. All actions share the same timeout, so the queue is
+     * ordered by expiry and every entry is visited once.
+     */
+    private void expirePendingActions() {
+        var now = System.nanoTime();
+        for (var expiry = expiryQueue.peekFirst(); expiry != null && expiry.expiresAt() - now <= 0;
+             expiry = expiryQueue.peekFirst()) {
+            expiryQueue.pollFirst();
+
+            var action = pendingActions.get(expiry.playerId());
+            if (action != null && action.expiresAt() - now <= 0) {
+                pendingActions.remove(expiry.playerId());
+            }
         }
     }
 
-    private @Nullable CostInfo calculateCost(Player player, String command, String[] args) {
+    /**
+     * Captures everything a cost depends on from the current server state.
+     * @return the request, or null if the command is not priced
+     */
+    private @Nullable QuoteRequest createQuoteRequest(ClaimContext context, ClaimContext.Selection selection,
+                                                      String command, String[] args) {
         if (args.length < 2) return null;
 
+        var normalizedCommand = command.toLowerCase();
+        if (!normalizedCommand.equals("claim") && !normalizedCommand.equals("redefine")) {
+            return null;
+        }
+
         var regionName = args[1];
-        var pricing = getPricingForPlayer(player);
+        var pricing = pricingTiers.resolve(context.player());
+        var world = context.world();
+        var newBounds = getRegionBounds(selection);
+        var key = new QuoteCache.Key(world.getUID(), newBounds, normalizedCommand, regionName, pricing,
+                regionIndex.getVersion(world));
 
         if (pricing.horizontal() <= 0 && pricing.vertical() <= 0) {
-            return new CostInfo(0, 0, 0, BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO);
+            return new QuoteRequest(key, world, null, List.of());
+        }
+        if (quotes.get(key) != null) {
+            return new QuoteRequest(key, world, null, List.of());
+        }
+
+        var manager = worldGuard.getRegionManager(world);
+        if (manager == null) {
+            return new QuoteRequest(key, world, null, List.of());
         }
 
-        return switch (command.toLowerCase()) {
-            case "claim" -> calculateNewRegionCost(player, pricing);
-            case "redefine" -> calculateRedefineCost(player, regionName, pricing);
-            default -> null;
-        };
+        var existingRegion = normalizedCommand.equals("redefine") ? manager.getRegion(regionName) : null;
+        if (existingRegion == null) {
+            return new QuoteRequest(key, world, null, toBounds(getOverlappingRegions(world, manager, newBounds), null));
+        }
+
+        var oldBounds = getRegionBounds(existingRegion);
+        var others = new LinkedHashSet<>(getOverlappingRegions(world, manager, newBounds));
+        others.addAll(getOverlappingRegions(world, manager, oldBounds));
+        return new QuoteRequest(key, world, oldBounds, toBounds(List.copyOf(others), existingRegion.getId()));
     }
 
-    private Configuration.PricingTier getPricingForPlayer(Player player) {
-        var pricePermissions = config.getPricePermissions();
-        double bestHorizontal = config.getDefaultHorizontalPricePerBlock();
-        double bestVertical = config.getDefaultVerticalPricePerBlock();
+    /**
+     * Prices a captured request, from the quote cache or on a worker thread.
+     * @return the cost, or null if it could not be calculated, completed on the server thread
+     */
+    private CompletableFuture<@Nullable CostInfo> quote(QuoteRequest request) {
+        var pricing = request.key().pricing();
+        if (pricing.horizontal() <= 0 && pricing.vertical() <= 0) {
+            return CompletableFuture.completedFuture(freeCost());
+        }
 
-        for (var entry : pricePermissions.entrySet()) {
-            if (player.hasPermission("betterregions.pricing." + entry.getKey())) {
-                var tier = entry.getValue();
-                bestHorizontal = Math.min(bestHorizontal, tier.horizontal());
-                bestVertical = Math.min(bestVertical, tier.vertical());
-            }
+        var cached = quotes.get(request.key());
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
         }
 
-        return new Configuration.PricingTier(bestHorizontal, bestVertical);
+        return CompletableFuture.supplyAsync(() -> calculateCost(request), workerExecutor)
+                .thenApplyAsync(costInfo -> {
+                    if (costInfo != null) {
+                        quotes.put(request.key(), costInfo);
+                    }
+                    return costInfo;
+                }, mainThreadExecutor);
     }
 
-    private @Nullable CostInfo calculateNewRegionCost(Player player, Configuration.PricingTier pricing) {
-        try {
-            var selection = getPlayerSelection(player);
-            if (selection == null) return null;
-
-            var newBounds = getRegionBounds(selection);
-            var manager = worldGuard.getRegionManager(player.getWorld());
+    /**
+     * Checks whether a region in the world of a request changed since it was captured.
+     */
+    private boolean isStale(QuoteRequest request) {
+        return regionIndex.getVersion(request.world()) != request.key().regionVersion();
+    }
 
-            if (manager == null) {
-                return calculateFullCost(newBounds, pricing);
-            }
+    /**
+     * Calculates the cost of a request. Only uses the captured snapshot, so it is safe to call off the server thread.
+     */
+    private @Nullable CostInfo calculateCost(QuoteRequest request) {
+        var newBounds = request.key().selection();
+        var oldBounds = request.oldBounds();
+        var pricing = request.key().pricing();
 
-            var existingRegions = getOverlappingRegions(manager, newBounds);
-            if (existingRegions.isEmpty()) {
-                return calculateFullCost(newBounds, pricing);
+        try {
+            if (oldBounds == null) {
+                try {
+                    return calculateNewRegionCostExact(newBounds, request.otherBounds(), pricing);
+                } catch (ArithmeticException overflow) {
+                    return calculateNewRegionCostBig(newBounds, request.otherBounds(), pricing);
+                }
             }
 
-            var newBlocks = calculateNewBlocks(newBounds, existingRegions);
-            if (newBlocks.compareTo(BigInteger.ZERO) <= 0) {
-                return new CostInfo(0, 0, 0, BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO);
+            try {
+                return calculateRedefineCostExact(newBounds, oldBounds, request.otherBounds(), pricing);
+            } catch (ArithmeticException overflow) {
+                return calculateRedefineCostBig(newBounds, oldBounds, request.otherBounds(), pricing);
             }
 
-            var horizontalArea = newBounds.getHorizontalArea();
-            var coveredHorizontalArea = calculateCoveredHorizontalArea(newBounds, existingRegions);
-            var newHorizontalArea = horizontalArea.subtract(coveredHorizontalArea).max(BigInteger.ZERO);
-            var newVerticalBlocks = newBlocks.subtract(newHorizontalArea).max(BigInteger.ZERO);
-
-            var horizontalCost = calculateSafeCost(newHorizontalArea, pricing.horizontal());
-            var verticalCost = calculateSafeCost(newVerticalBlocks, pricing.vertical());
-
-            return new CostInfo(
-                    horizontalCost + verticalCost,
-                    horizontalCost,
-                    verticalCost,
-                    newHorizontalArea,
-                    newVerticalBlocks,
-                    newBlocks
-            );
-
         } catch (Exception e) {
             return null;
         }
     }
 
-    private @Nullable CostInfo calculateRedefineCost(Player player, String regionName, Configuration.PricingTier pricing) {
-        try {
-            var selection = getPlayerSelection(player);
-            if (selection == null) return null;
+    /**
+     * Prices a new region with long arithmetic.
+     * @throws ArithmeticException if any intermediate value does not fit in a long
+     */
+    private CostInfo calculateNewRegionCostExact(RegionBounds newBounds, List<RegionBounds> existingBounds,
+                                                 Configuration.PricingTier pricing) {
+        var newBlocks = newBounds.volume() - calculateCoveredVolumeExact(newBounds, existingBounds);
+        if (newBlocks <= 0) {
+            return freeCost();
+        }
 
-            var existingRegion = worldGuard.getRegion(player.getWorld(), regionName);
-            if (existingRegion == null) {
-                return calculateNewRegionCost(player, pricing);
-            }
+        var newHorizontalArea = Math.max(0,
+                newBounds.horizontalArea() - calculateCoveredHorizontalAreaExact(newBounds, existingBounds));
+        var newVerticalBlocks = Math.max(0, newBlocks - newHorizontalArea);
 
-            var newBounds = getRegionBounds(selection);
-            var oldBounds = getRegionBounds(existingRegion);
-            var manager = worldGuard.getRegionManager(player.getWorld());
-            var otherRegions = new ArrayList<ProtectedRegion>();
-
-            if (manager != null) {
-                for (var region : manager.getRegions().values()) {
-                    if (!(region instanceof GlobalProtectedRegion) &&
-                            !region.getId().equals(regionName) &&
-                            newBounds.intersect(getRegionBounds(region)) != null) {
-                        otherRegions.add(region);
-                    }
-                }
-            }
-
-            var totalNewBlocks = calculateNewBlocks(newBounds, otherRegions);
-            var oldBlocks = oldBounds.getVolume();
-            var oldIntersectionWithOthers = calculateCoveredVolume(oldBounds,
-                    otherRegions.stream().map(this::getRegionBounds).toList());
-            var actualOldBlocks = oldBlocks.subtract(oldIntersectionWithOthers);
-            var additionalBlocks = totalNewBlocks.subtract(actualOldBlocks);
+        return createCostInfo(newHorizontalArea, newVerticalBlocks, newBlocks, pricing);
+    }
 
-            if (additionalBlocks.compareTo(BigInteger.ZERO) <= 0) {
-                return new CostInfo(0, 0, 0, BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO);
-            }
+    /**
+     * Prices a redefined region with long arithmetic, charging only for blocks not owned before.
+     * @throws ArithmeticException if any intermediate value does not fit in a long
+     */
+    private CostInfo calculateRedefineCostExact(RegionBounds newBounds, RegionBounds oldBounds,
+                                                List<RegionBounds> otherBounds, Configuration.PricingTier pricing) {
+        var totalNewBlocks = newBounds.volume() - calculateCoveredVolumeExact(newBounds, otherBounds);
+        var actualOldBlocks = oldBounds.volume() - calculateCoveredVolumeExact(oldBounds, otherBounds);
+        var additionalBlocks = totalNewBlocks - actualOldBlocks;
 
-            var additionalHorizontal = calculateAdditionalHorizontalArea(newBounds, oldBounds, otherRegions);
-            var additionalVertical = additionalBlocks.subtract(additionalHorizontal).max(BigInteger.ZERO);
+        if (additionalBlocks <= 0) {
+            return freeCost();
+        }
 
-            var horizontalCost = calculateSafeCost(additionalHorizontal, pricing.horizontal());
-            var verticalCost = calculateSafeCost(additionalVertical, pricing.vertical());
+        var actualNewHorizontal = newBounds.horizontalArea() - calculateCoveredHorizontalAreaExact(newBounds, otherBounds);
+        var actualOldHorizontal = oldBounds.horizontalArea() - calculateCoveredHorizontalAreaExact(oldBounds, otherBounds);
+        var additionalHorizontal = Math.max(0, actualNewHorizontal - actualOldHorizontal);
+        var additionalVertical = Math.max(0, additionalBlocks - additionalHorizontal);
 
-            return new CostInfo(
-                    horizontalCost + verticalCost,
-                    horizontalCost,
-                    verticalCost,
-                    additionalHorizontal,
-                    additionalVertical,
-                    additionalBlocks
-            );
+        return createCostInfo(additionalHorizontal, additionalVertical, additionalBlocks, pricing);
+    }
 
-        } catch (Exception e) {
-            return null;
+    private CostInfo calculateNewRegionCostBig(RegionBounds newBounds, List<RegionBounds> existingBounds,
+                                               Configuration.PricingTier pricing) {
+        var newBlocks = newBounds.getVolume().subtract(calculateCoveredVolume(newBounds, existingBounds));
+        if (newBlocks.signum() <= 0) {
+            return freeCost();
         }
+
+        var newHorizontalArea = newBounds.getHorizontalArea()
+                .subtract(calculateCoveredHorizontalArea(newBounds, existingBounds)).max(BigInteger.ZERO);
+        var newVerticalBlocks = newBlocks.subtract(newHorizontalArea).max(BigInteger.ZERO);
+
+        return createCostInfo(newHorizontalArea, newVerticalBlocks, newBlocks, pricing);
     }
 
-    private BigInteger calculateAdditionalHorizontalArea(RegionBounds newBounds, RegionBounds oldBounds,
-                                                         List<ProtectedRegion> otherRegions) {
-        var newHorizontalArea = newBounds.getHorizontalArea();
-        var oldHorizontalArea = oldBounds.getHorizontalArea();
-        var coveredOldHorizontal = calculateCoveredHorizontalArea(oldBounds, otherRegions);
-        var actualOldHorizontal = oldHorizontalArea.subtract(coveredOldHorizontal);
-        var coveredNewHorizontal = calculateCoveredHorizontalArea(newBounds, otherRegions);
-        var actualNewHorizontal = newHorizontalArea.subtract(coveredNewHorizontal);
+    private CostInfo calculateRedefineCostBig(RegionBounds newBounds, RegionBounds oldBounds,
+                                              List<RegionBounds> otherBounds, Configuration.PricingTier pricing) {
+        var totalNewBlocks = newBounds.getVolume().subtract(calculateCoveredVolume(newBounds, otherBounds));
+        var actualOldBlocks = oldBounds.getVolume().subtract(calculateCoveredVolume(oldBounds, otherBounds));
+        var additionalBlocks = totalNewBlocks.subtract(actualOldBlocks);
 
-        return actualNewHorizontal.subtract(actualOldHorizontal).max(BigInteger.ZERO);
+        if (additionalBlocks.signum() <= 0) {
+            return freeCost();
+        }
+
+        var actualNewHorizontal = newBounds.getHorizontalArea()
+                .subtract(calculateCoveredHorizontalArea(newBounds, otherBounds));
+        var actualOldHorizontal = oldBounds.getHorizontalArea()
+                .subtract(calculateCoveredHorizontalArea(oldBounds, otherBounds));
+        var additionalHorizontal = actualNewHorizontal.subtract(actualOldHorizontal).max(BigInteger.ZERO);
+        var additionalVertical = additionalBlocks.subtract(additionalHorizontal).max(BigInteger.ZERO);
+
+        return createCostInfo(additionalHorizontal, additionalVertical, additionalBlocks, pricing);
     }
 
-    private CostInfo calculateFullCost(RegionBounds bounds, Configuration.PricingTier pricing) {
-        var horizontalArea = bounds.getHorizontalArea();
-        var totalVolume = bounds.getVolume();
-        var verticalBlocks = totalVolume.subtract(horizontalArea);
+    private CostInfo createCostInfo(long horizontalBlocks, long verticalBlocks, long totalBlocks,
+                                    Configuration.PricingTier pricing) {
+        var horizontalCost = calculateSafeCost(horizontalBlocks, pricing.horizontal());
+        var verticalCost = calculateSafeCost(verticalBlocks, pricing.vertical());
+
+        return new CostInfo(
+                horizontalCost + verticalCost,
+                horizontalCost,
+                verticalCost,
+                BigInteger.valueOf(horizontalBlocks),
+                BigInteger.valueOf(verticalBlocks),
+                BigInteger.valueOf(totalBlocks)
+        );
+    }
 
-        var horizontalCost = calculateSafeCost(horizontalArea, pricing.horizontal());
+    private CostInfo createCostInfo(BigInteger horizontalBlocks, BigInteger verticalBlocks, BigInteger totalBlocks,
+                                    Configuration.PricingTier pricing) {
+        var horizontalCost = calculateSafeCost(horizontalBlocks, pricing.horizontal());
         var verticalCost = calculateSafeCost(verticalBlocks, pricing.vertical());
 
         return new CostInfo(
                 horizontalCost + verticalCost,
                 horizontalCost,
                 verticalCost,
-                horizontalArea,
+                horizontalBlocks,
                 verticalBlocks,
-                totalVolume
+                totalBlocks
         );
     }
 
-    private List<ProtectedRegion> getOverlappingRegions(com.sk89q.worldguard.protection.managers.RegionManager manager,
+    private CostInfo freeCost() {
+        return new CostInfo(0, 0, 0, BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO);
+    }
+
+    private List<ProtectedRegion> getOverlappingRegions(World world,
+                                                        com.sk89q.worldguard.protection.managers.RegionManager manager,
                                                         RegionBounds newBounds) {
+        var indexed = regionIndex.getIntersecting(world, newBounds.minX(), newBounds.minY(), newBounds.minZ(),
+                newBounds.maxX(), newBounds.maxY(), newBounds.maxZ());
+        if (indexed != null) {
+            return indexed;
+        }
+
         return manager.getRegions().values().stream()
                 .filter(region -> !(region instanceof GlobalProtectedRegion))
                 .filter(region -> newBounds.intersect(getRegionBounds(region)) != null)
                 .toList();
     }
 
-    private BigInteger calculateNewBlocks(RegionBounds newBounds, List<ProtectedRegion> existingRegions) {
-        if (existingRegions.isEmpty()) {
-            return newBounds.getVolume();
+    private List<RegionBounds> toBounds(List<ProtectedRegion> regions, @Nullable String excludedRegionId) {
+        var bounds = new ArrayList<RegionBounds>(regions.size());
+        for (var region : regions) {
+            if (excludedRegionId == null || !region.getId().equals(excludedRegionId)) {
+                bounds.add(getRegionBounds(region));
+            }
         }
-
-        var existingBounds = existingRegions.stream().map(this::getRegionBounds).toList();
-        var coveredVolume = calculateCoveredVolume(newBounds, existingBounds);
-        return newBounds.getVolume().subtract(coveredVolume);
+        return bounds;
     }
 
-    private BigInteger calculateCoveredVolume(RegionBounds newBounds, List<RegionBounds> existingBounds) {
-        if (existingBounds.isEmpty()) return BigInteger.ZERO;
-
-        var intersections = existingBounds.stream()
-                .map(newBounds::intersect)
-                .filter(Objects::nonNull)
-                .toList();
-
-        return intersections.isEmpty() ? BigInteger.ZERO : calculateUnionVolume(intersections);
+    private long calculateCoveredVolumeExact(RegionBounds bounds, List<RegionBounds> existingBounds) {
+        var intersections = intersectAll(bounds, existingBounds, false);
+        if (intersections.isEmpty()) return 0;
+        if (intersections.size() == 1) return intersections.getFirst().volume();
+        return UnionVolumeCalculator.unionVolumeExact(intersections);
     }
 
-    private BigInteger calculateCoveredHorizontalArea(RegionBounds newBounds, List<ProtectedRegion> existingRegions) {
-        if (existingRegions.isEmpty()) return BigInteger.ZERO;
-
-        var horizontalIntersections = existingRegions.stream()
-                .map(region -> {
-                    var regionBounds = getRegionBounds(region);
-                    var newHorizontal = new RegionBounds(newBounds.minX, newBounds.minY, newBounds.minZ,
-                            newBounds.maxX, newBounds.minY, newBounds.maxZ);
-                    var regionHorizontal = new RegionBounds(regionBounds.minX, newBounds.minY, regionBounds.minZ,
-                            regionBounds.maxX, newBounds.minY, regionBounds.maxZ);
-                    return newHorizontal.intersect(regionHorizontal);
-                })
-                .filter(Objects::nonNull)
-                .toList();
-
-        return horizontalIntersections.isEmpty() ? BigInteger.ZERO : calculateUnionVolume(horizontalIntersections);
+    private long calculateCoveredHorizontalAreaExact(RegionBounds bounds, List<RegionBounds> existingBounds) {
+        var intersections = intersectAll(bounds, existingBounds, true);
+        if (intersections.isEmpty()) return 0;
+        if (intersections.size() == 1) return intersections.getFirst().volume();
+        return UnionVolumeCalculator.unionVolumeExact(intersections);
     }
 
-    private BigInteger calculateUnionVolume(List<RegionBounds> regions) {
-        if (regions.isEmpty()) return BigInteger.ZERO;
-        if (regions.size() == 1) return regions.getFirst().getVolume();
-        return calculateUnionVolumeSweep(regions);
+    private BigInteger calculateCoveredVolume(RegionBounds bounds, List<RegionBounds> existingBounds) {
+        return calculateUnionVolume(intersectAll(bounds, existingBounds, false));
     }
 
-    private BigInteger calculateUnionVolumeSweep(List<RegionBounds> regions) {
-        var events = new ArrayList<XEvent>();
-        for (var region : regions) {
-            events.add(new XEvent(region.minX, true, region));
-            events.add(new XEvent(region.maxX + 1, false, region));
-        }
-
-        events.sort((a, b) -> {
-            int result = Integer.compare(a.x, b.x);
-            return result != 0 ? result : Boolean.compare(b.isStart, a.isStart);
-        });
-
-        var totalVolume = BigInteger.ZERO;
-        var activeRegions = new ArrayList<RegionBounds>();
-        var lastX = Integer.MIN_VALUE;
-
-        for (var event : events) {
-            if (!activeRegions.isEmpty() && event.x > lastX) {
-                var sliceWidth = event.x - lastX;
-                var sliceArea = calculateYZUnionArea(activeRegions);
-                totalVolume = totalVolume.add(BigInteger.valueOf(sliceWidth).multiply(sliceArea));
-            }
+    private BigInteger calculateCoveredHorizontalArea(RegionBounds bounds, List<RegionBounds> existingBounds) {
+        return calculateUnionVolume(intersectAll(bounds, existingBounds, true));
+    }
 
-            if (event.isStart) {
-                activeRegions.add(event.region);
-            } else {
-                activeRegions.remove(event.region);
+    /**
+     * Intersects every existing region with the given bounds.
+     * @param flatten whether to project the intersections onto a single layer to measure horizontal area
+     */
+    private List<RegionBounds> intersectAll(RegionBounds bounds, List<RegionBounds> existingBounds, boolean flatten) {
+        var intersections = new ArrayList<RegionBounds>(existingBounds.size());
+        for (var existing : existingBounds) {
+            var intersection = flatten
+                    ? bounds.flatten().intersect(existing.flattenAt(bounds.minY()))
+                    : bounds.intersect(existing);
+            if (intersection != null) {
+                intersections.add(intersection);
             }
-            lastX = event.x;
         }
-
-        return totalVolume;
+        return intersections;
     }
 
-    private record XEvent(int x, boolean isStart, RegionBounds region) {
-    }
-
-    private BigInteger calculateYZUnionArea(List<RegionBounds> regions) {
+    private BigInteger calculateUnionVolume(List<RegionBounds> regions) {
         if (regions.isEmpty()) return BigInteger.ZERO;
-
-        var intervals = new ArrayList<YInterval>();
-        for (var region : regions) {
-            intervals.add(new YInterval(region.minY, region.maxY, region.minZ, region.maxZ));
-        }
-
-        return calculateYZUnion(intervals);
-    }
-
-    private record YInterval(int minY, int maxY, int minZ, int maxZ) {
-    }
-
-    private BigInteger calculateYZUnion(List<YInterval> intervals) {
-        if (intervals.isEmpty()) return BigInteger.ZERO;
-        var sortedY = intervals.stream()
-                .sorted(Comparator.comparingInt(a -> a.minY))
-                .toList();
-
-        var totalArea = BigInteger.ZERO;
-        for (var interval : sortedY) {
-            var area = BigInteger.valueOf((long) (interval.maxY - interval.minY + 1) *
-                    (interval.maxZ - interval.minZ + 1));
-            totalArea = totalArea.add(area);
-        }
-
-        return totalArea;
+        if (regions.size() == 1) return regions.getFirst().getVolume();
+        return UnionVolumeCalculator.unionVolume(regions);
     }
 
-    private RegionBounds getRegionBounds(Region region) {
-        var min = region.getMinimumPoint();
-        var max = region.getMaximumPoint();
+    private RegionBounds getRegionBounds(ClaimContext.Selection selection) {
+        var min = selection.min();
+        var max = selection.max();
         return new RegionBounds(min.x(), min.y(), min.z(), max.x(), max.y(), max.z());
     }
 
@@ -541,50 +738,41 @@ public final class EconomyService {
         return new RegionBounds(min.x(), min.y(), min.z(), max.x(), max.y(), max.z());
     }
 
+    private double calculateSafeCost(long blocks, double pricePerBlock) {
+        if (blocks <= 0 || pricePerBlock <= 0) return 0.0;
+        return blocks * pricePerBlock;
+    }
+
     private double calculateSafeCost(BigInteger blocks, double pricePerBlock) {
         if (blocks.equals(BigInteger.ZERO) || pricePerBlock <= 0) return 0.0;
         if (blocks.compareTo(BigInteger.valueOf(Long.MAX_VALUE)) > 0) return Double.MAX_VALUE;
         return blocks.doubleValue() * pricePerBlock;
     }
 
-    private @Nullable Region getPlayerSelection(Player player) throws IncompleteRegionException {
-        var worldEdit = WorldEditPlugin.getPlugin(WorldEditPlugin.class);
-        var session = worldEdit.getSession(player);
-        var world = BukkitAdapter.adapt(player.getWorld());
-        var selector = session.getRegionSelector(world);
-        selector.learnChanges();
-        return session.getSelection(world);
-    }
-
-    private boolean selectionsMatch(Region original, Region current) {
-        return original.getMinimumPoint().equals(current.getMinimumPoint()) &&
-                original.getMaximumPoint().equals(current.getMaximumPoint());
-    }
-
-    private void createPendingAction(Player player, String command, String[] args, CostInfo costInfo, Region selection) {
+    private void createPendingAction(Player player, String command, String[] args, CostInfo costInfo,
+                                     ClaimContext.Selection selection, double balance) {
         cancelPendingAction(player);
 
-        var timeout = config.getConfirmationTimeoutSeconds() * 20L;
-        var timeoutTask = Bukkit.getScheduler()
-                .runTaskLater(plugin, () -> pendingActions.remove(player.getUniqueId()), timeout);
-
+        var timeoutSeconds = config.getConfirmationTimeoutSeconds();
+        var expiresAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
         var regionName = args.length > 1 ? args[1] : "unknown";
-        var action = new PendingAction(command, args, costInfo, regionName, selection, timeoutTask, false);
+        var action = new PendingAction(command, args, costInfo, regionName, selection, expiresAt);
         pendingActions.put(player.getUniqueId(), action);
+        expiryQueue.addLast(new Expiry(player.getUniqueId(), expiresAt));
 
-        sendConfirmationMessage(player, costInfo);
+        sendConfirmationMessage(player, costInfo, balance, timeoutSeconds);
     }
 
-    private void sendConfirmationMessage(Player player, CostInfo costInfo) {
+    private void sendConfirmationMessage(Player player, CostInfo costInfo, double balance, int timeoutSeconds) {
         String totalCostFormatted = vault.formatCurrency(costInfo.totalCost());
         String horizontalCostFormatted = vault.formatCurrency(costInfo.horizontalCost());
         String verticalCostFormatted = vault.formatCurrency(costInfo.verticalCost());
-        String balance = vault.formatCurrency(vault.getBalance(player));
-        String timeout = String.valueOf(config.getConfirmationTimeoutSeconds());
+        String balanceFormatted = vault.formatCurrency(balance);
+        String timeout = String.valueOf(timeoutSeconds);
 
         player.sendMessage(messages.confirmationRequired(
                 totalCostFormatted, horizontalCostFormatted, verticalCostFormatted,
-                costInfo.horizontalBlocks(), costInfo.verticalBlocks(), balance, timeout
+                costInfo.horizontalBlocks(), costInfo.verticalBlocks(), balanceFormatted, timeout
         ));
     }
 }
\ No newline at end of file
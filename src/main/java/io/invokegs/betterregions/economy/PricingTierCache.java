@@ -0,0 +1,95 @@
+package io.invokegs.betterregions.economy;
+
+import io.invokegs.betterregions.config.Configuration;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of the best pricing tier of each online player.
+ * Bukkit has no permission change event, so entries are dropped on join, quit and world
+ * change (permission plugins commonly use world contexts) and expire after a configured time.
+ */
+final class PricingTierCache implements Listener {
+
+    private record Entry(Configuration.PricingTier tier, long expiresAt) {}
+
+    private final Configuration config;
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    PricingTierCache(Configuration config) {
+        this.config = config;
+    }
+
+    /**
+     * Gets the cheapest pricing tier a player has permission for.
+     * Must be called from the server thread on a miss, as it checks permissions.
+     * @param player the player
+     * @return the pricing tier
+     */
+    Configuration.PricingTier resolve(Player player) {
+        var now = System.currentTimeMillis();
+        var entry = entries.get(player.getUniqueId());
+        if (entry != null && entry.expiresAt() > now) {
+            return entry.tier();
+        }
+
+        var snapshot = config.snapshot();
+        var tier = scan(player, snapshot);
+        entries.put(player.getUniqueId(), new Entry(tier, now + snapshot.pricingCacheTtlSeconds() * 1000L));
+        return tier;
+    }
+
+    /**
+     * Drops the cached tier of a player.
+     * @param playerUuid the player UUID
+     */
+    void invalidate(UUID playerUuid) {
+        entries.remove(playerUuid);
+    }
+
+    /**
+     * Drops all cached tiers, e.g. after the pricing configuration changed.
+     */
+    void clear() {
+        entries.clear();
+    }
+
+    private Configuration.PricingTier scan(Player player, Configuration.Snapshot snapshot) {
+        double bestHorizontal = snapshot.defaultHorizontalPricePerBlock();
+        double bestVertical = snapshot.defaultVerticalPricePerBlock();
+
+        for (var entry : snapshot.pricingNodes().entrySet()) {
+            if (player.hasPermission(entry.getKey())) {
+                var tier = entry.getValue();
+                bestHorizontal = Math.min(bestHorizontal, tier.horizontal());
+                bestVertical = Math.min(bestVertical, tier.vertical());
+            }
+        }
+
+        return new Configuration.PricingTier(bestHorizontal, bestVertical);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        invalidate(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        invalidate(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        invalidate(event.getPlayer().getUniqueId());
+    }
+}
@@ -0,0 +1,49 @@
+package io.invokegs.betterregions.economy;
+
+import io.invokegs.betterregions.config.Configuration;
+import org.jspecify.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bounded cache of computed region costs.
+ * A quote is reused only while the selection, the command, the pricing tier and the region
+ * index version of the world are unchanged, so any region change in the world makes it stale.
+ * Accessed from the server thread only.
+ */
+final class QuoteCache {
+    private static final int MAX_SIZE = 256;
+
+    /**
+     * Everything a cost depends on.
+     * @param worldId the world of the selection
+     * @param selection the selection bounds
+     * @param command the lower-case region command
+     * @param target the target region name
+     * @param pricing the pricing tier of the player
+     * @param regionVersion the region index version of the world
+     */
+    record Key(UUID worldId, EconomyService.RegionBounds selection, String command, String target,
+               Configuration.PricingTier pricing, long regionVersion) {}
+
+    private final Map<Key, EconomyService.CostInfo> quotes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, EconomyService.CostInfo> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    EconomyService.@Nullable CostInfo get(Key key) {
+        return quotes.get(key);
+    }
+
+    void put(Key key, EconomyService.CostInfo costInfo) {
+        quotes.put(key, costInfo);
+    }
+
+    void clear() {
+        quotes.clear();
+    }
+}
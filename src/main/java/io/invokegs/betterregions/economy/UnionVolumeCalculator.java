@@ -0,0 +1,277 @@
+package io.invokegs.betterregions.economy;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes the exact number of blocks covered by a union of cuboids.
+ * <p>
+ * Sweeps along X over the compressed entry and exit coordinates while keeping the covered area
+ * of the YZ cross-section up to date. The cross-section is split into columns between the
+ * compressed coordinates of one axis, Y or Z, whichever the cuboids span less of, and every
+ * covered column has a segment tree over the compressed coordinates of the other axis that
+ * tracks its covered length. Entering or leaving a cuboid only updates the columns it spans and
+ * adds the change of their covered lengths to the area, so overlapping cuboids are counted once
+ * and no slab is measured from scratch. Trees of columns that become uncovered are reused, so
+ * memory follows the columns covered at once rather than all columns.
+ */
+final class UnionVolumeCalculator {
+    /**
+     * Bits of a sorted X event key that hold the event, the rest hold the coordinate.
+     */
+    private static final int EVENT_BITS = 30;
+
+    private final long[] columnEdges;
+    private final long[] treeEdges;
+    private final int[] columnFrom;
+    private final int[] columnTo;
+    private final int[] treeFrom;
+    private final int[] treeTo;
+    private final int treeSize;
+    private final int[] columnTrees;
+    private int[] freeTrees = new int[16];
+    private int freeCount;
+    private int treeCount;
+    private int[] coverCounts;
+    private long[] coveredLengths;
+    private final ExactSum area = new ExactSum();
+
+    private UnionVolumeCalculator(List<EconomyService.RegionBounds> boxes) {
+        var count = boxes.size();
+        var yCoords = new long[count * 2];
+        var zCoords = new long[count * 2];
+        for (int i = 0; i < count; i++) {
+            var box = boxes.get(i);
+            yCoords[i * 2] = box.minY();
+            yCoords[i * 2 + 1] = (long) box.maxY() + 1;
+            zCoords[i * 2] = box.minZ();
+            zCoords[i * 2 + 1] = (long) box.maxZ() + 1;
+        }
+        var ys = distinctSorted(yCoords);
+        var zs = distinctSorted(zCoords);
+
+        var yFrom = new int[count];
+        var yTo = new int[count];
+        var zFrom = new int[count];
+        var zTo = new int[count];
+        long ySpans = 0;
+        long zSpans = 0;
+        for (int i = 0; i < count; i++) {
+            var box = boxes.get(i);
+            yFrom[i] = Arrays.binarySearch(ys, box.minY());
+            yTo[i] = Arrays.binarySearch(ys, (long) box.maxY() + 1) - 1;
+            zFrom[i] = Arrays.binarySearch(zs, box.minZ());
+            zTo[i] = Arrays.binarySearch(zs, (long) box.maxZ() + 1) - 1;
+            ySpans += yTo[i] - yFrom[i] + 1;
+            zSpans += zTo[i] - zFrom[i] + 1;
+        }
+
+        // A cuboid updates every column it spans, so columns go along the axis the cuboids span less of
+        var columnsAlongY = ySpans < zSpans;
+        this.columnEdges = columnsAlongY ? ys : zs;
+        this.treeEdges = columnsAlongY ? zs : ys;
+        this.columnFrom = columnsAlongY ? yFrom : zFrom;
+        this.columnTo = columnsAlongY ? yTo : zTo;
+        this.treeFrom = columnsAlongY ? zFrom : yFrom;
+        this.treeTo = columnsAlongY ? zTo : yTo;
+
+        this.treeSize = (treeEdges.length - 1) * 4;
+        this.columnTrees = new int[columnEdges.length - 1];
+        Arrays.fill(columnTrees, -1);
+        var initialTrees = Math.min(columnTrees.length, 16);
+        this.coverCounts = new int[treeSize * initialTrees];
+        this.coveredLengths = new long[treeSize * initialTrees];
+    }
+
+    /**
+     * Computes the volume of the union of the given cuboids.
+     * @param boxes the cuboids, with inclusive block bounds
+     * @return the number of distinct blocks covered by at least one cuboid
+     */
+    static BigInteger unionVolume(List<EconomyService.RegionBounds> boxes) {
+        if (boxes.isEmpty()) return BigInteger.ZERO;
+        return new UnionVolumeCalculator(boxes).sweep(boxes).toBigInteger();
+    }
+
+    /**
+     * Computes the volume of the union of the given cuboids without allocating big numbers.
+     * @param boxes the cuboids, with inclusive block bounds
+     * @return the number of distinct blocks covered by at least one cuboid
+     * @throws ArithmeticException if the volume does not fit in a long
+     */
+    static long unionVolumeExact(List<EconomyService.RegionBounds> boxes) {
+        if (boxes.isEmpty()) return 0;
+        return new UnionVolumeCalculator(boxes).sweep(boxes).toLongExact();
+    }
+
+    private ExactSum sweep(List<EconomyService.RegionBounds> boxes) {
+        var events = sortedXEvents(boxes);
+        var volume = new ExactSum();
+
+        var lastX = xCoordinate(events[0]);
+        for (var key : events) {
+            var x = xCoordinate(key);
+            if (x > lastX) {
+                volume.addProduct(x - lastX, area);
+                lastX = x;
+            }
+
+            var event = (int) (key & ((1L << EVENT_BITS) - 1));
+            apply(event >> 1, (event & 1) == 0 ? 1 : -1);
+        }
+
+        return volume;
+    }
+
+    /**
+     * Adds a cuboid to the cross-section or removes it, updating the covered area.
+     */
+    private void apply(int box, int delta) {
+        var segments = treeEdges.length - 1;
+        for (int column = columnFrom[box]; column <= columnTo[box]; column++) {
+            var root = treeOf(column) * treeSize;
+            var before = coveredLengths[root];
+            update(root, 0, 0, segments - 1, treeFrom[box], treeTo[box], delta);
+
+            var after = coveredLengths[root];
+            if (after != before) {
+                area.addProduct(columnEdges[column + 1] - columnEdges[column], after - before);
+            }
+            // Cover counts never go negative, so an uncovered tree is all zeros and can be reused as is
+            if (after == 0) {
+                releaseTree(column);
+            }
+        }
+    }
+
+    private int treeOf(int column) {
+        var tree = columnTrees[column];
+        if (tree >= 0) return tree;
+
+        if (freeCount > 0) {
+            tree = freeTrees[--freeCount];
+        } else {
+            tree = treeCount++;
+            if (treeCount * treeSize > coverCounts.length) {
+                coverCounts = Arrays.copyOf(coverCounts, coverCounts.length * 2);
+                coveredLengths = Arrays.copyOf(coveredLengths, coveredLengths.length * 2);
+            }
+        }
+        columnTrees[column] = tree;
+        return tree;
+    }
+
+    private void releaseTree(int column) {
+        if (freeCount == freeTrees.length) {
+            freeTrees = Arrays.copyOf(freeTrees, freeCount * 2);
+        }
+        freeTrees[freeCount++] = columnTrees[column];
+        columnTrees[column] = -1;
+    }
+
+    private void update(int root, int node, int left, int right, int from, int to, int delta) {
+        if (to < left || right < from) return;
+
+        var index = root + node;
+        if (from <= left && right <= to) {
+            coverCounts[index] += delta;
+        } else {
+            var middle = (left + right) >>> 1;
+            update(root, node * 2 + 1, left, middle, from, to, delta);
+            update(root, node * 2 + 2, middle + 1, right, from, to, delta);
+        }
+
+        if (coverCounts[index] > 0) {
+            coveredLengths[index] = treeEdges[right + 1] - treeEdges[left];
+        } else if (left == right) {
+            coveredLengths[index] = 0;
+        } else {
+            coveredLengths[index] = coveredLengths[root + node * 2 + 1] + coveredLengths[root + node * 2 + 2];
+        }
+    }
+
+    /**
+     * Sorts the entry and exit events of all boxes along X. Events are encoded as {@code box * 2}
+     * for entries and {@code box * 2 + 1} for exits, and packed below the offset coordinate so
+     * the keys sort as primitives.
+     */
+    private static long[] sortedXEvents(List<EconomyService.RegionBounds> boxes) {
+        if (boxes.size() >= 1 << (EVENT_BITS - 1)) {
+            throw new IllegalArgumentException("Too many cuboids: " + boxes.size());
+        }
+
+        var keys = new long[boxes.size() * 2];
+        for (int i = 0; i < boxes.size(); i++) {
+            var box = boxes.get(i);
+            keys[i * 2] = eventKey(box.minX(), i * 2);
+            keys[i * 2 + 1] = eventKey((long) box.maxX() + 1, i * 2 + 1);
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    private static long eventKey(long x, int event) {
+        return (x - Integer.MIN_VALUE) << EVENT_BITS | event;
+    }
+
+    private static long xCoordinate(long key) {
+        return (key >>> EVENT_BITS) + Integer.MIN_VALUE;
+    }
+
+    private static long[] distinctSorted(long[] values) {
+        var sorted = values.clone();
+        Arrays.sort(sorted);
+
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, size);
+    }
+
+    /**
+     * Sum of products that stays in a long and switches to BigInteger only on overflow.
+     */
+    private static final class ExactSum {
+        private long value;
+        private BigInteger overflow = BigInteger.ZERO;
+        private boolean overflowed;
+
+        private void addProduct(long a, long b) {
+            if (!overflowed) {
+                try {
+                    value = Math.addExact(value, Math.multiplyExact(a, b));
+                    return;
+                } catch (ArithmeticException e) {
+                    overflowed = true;
+                    overflow = BigInteger.valueOf(value);
+                }
+            }
+            overflow = overflow.add(BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)));
+        }
+
+        private void addProduct(long a, ExactSum b) {
+            if (b.overflowed) {
+                if (!overflowed) {
+                    overflowed = true;
+                    overflow = BigInteger.valueOf(value);
+                }
+                overflow = overflow.add(BigInteger.valueOf(a).multiply(b.overflow));
+                return;
+            }
+            addProduct(a, b.value);
+        }
+
+        private BigInteger toBigInteger() {
+            return overflowed ? overflow : BigInteger.valueOf(value);
+        }
+
+        private long toLongExact() {
+            if (overflowed) throw new ArithmeticException("long overflow");
+            return value;
+        }
+    }
+}
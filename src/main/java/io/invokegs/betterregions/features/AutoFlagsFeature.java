@@ -1,6 +1,5 @@
 package io.invokegs.betterregions.features;
 
-import com.sk89q.worldguard.protection.flags.Flag;
 import io.invokegs.betterregions.config.Configuration;
 import io.invokegs.betterregions.config.Messages;
 import io.invokegs.betterregions.integration.WorldGuardIntegration;
@@ -12,7 +11,7 @@ import java.util.logging.Logger;
 
 /**
  * Feature that automatically applies configured flags to newly created regions.
- * Uses WorldGuard's built-in flag unmarshaling to handle value parsing.
+ * Flag values are parsed and validated once on load, claims only copy them onto the region.
  */
 public final class AutoFlagsFeature {
 
@@ -30,49 +29,34 @@ public final class AutoFlagsFeature {
 
     /**
      * Applies auto flags to a region if the feature is enabled.
+     * Flags of the world override the flags of all worlds, and flags of the pricing tiers the
+     * player has override both, in configured order.
      * @param player the player who created the region
      * @param world the world containing the region
      * @param regionName the name of the region
      */
     public void applyAutoFlags(Player player, World world, String regionName) {
-        var autoFlags = config.getAutoFlags();
-        if (autoFlags.isEmpty()) return;
+        var snapshot = config.snapshot();
+        var template = snapshot.autoFlagsFor(world.getName());
+        for (var tier : snapshot.tierAutoFlags().entrySet()) {
+            if (player.hasPermission(tier.getKey())) {
+                template = template.with(tier.getValue());
+            }
+        }
+        if (template.isEmpty()) return;
 
         var region = worldGuard.getRegion(world, regionName);
         if (region == null) return;
 
-        var showMessages = config.showAutoFlagMessages();
-        int appliedCount = 0;
-
-        for (var entry : autoFlags.entrySet()) {
-            try {
-                var flag = entry.getKey();
-                var value = entry.getValue();
-
-                var unmarshaled = flag.unmarshal(value);
-                setFlagDirect(region, flag, unmarshaled);
-
-                appliedCount++;
-            } catch (Exception e) {
-                logger.log(Level.WARNING,
-                        "Failed to set auto flag " + entry.getKey().getName() + " on region " + regionName +
-                                " with value '" + entry.getValue() + "'", e);
-            }
+        try {
+            template.applyTo(region);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to set auto flags on region " + regionName, e);
+            return;
         }
 
-        if (appliedCount > 0 && showMessages) {
+        if (snapshot.showAutoFlagMessages()) {
             player.sendMessage(messages.autoFlagsApplied(regionName));
         }
     }
-
-    /**
-     * Sets a flag directly on the region.
-     * @param region the region
-     * @param flag the flag
-     * @param value the already-parsed value
-     */
-    @SuppressWarnings("unchecked")
-    private <T> void setFlagDirect(com.sk89q.worldguard.protection.regions.ProtectedRegion region, Flag<T> flag, Object value) {
-        region.setFlag(flag, (T) value);
-    }
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package io.invokegs.betterregions.features;
+
+/**
+ * Packs chunk and block coordinates into primitive long keys, e.g. for {@link LongKeyedMap}.
+ */
+final class BlockKeys {
+    private BlockKeys() {}
+
+    /**
+     * Packs chunk coordinates into a long: z in the high 32 bits, x in the low 32 bits.
+     */
+    static long chunk(int chunkX, int chunkZ) {
+        return (long) chunkZ << 32 | (chunkX & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Packs block coordinates into a long: 26 bits for x and z, 12 bits for y.
+     */
+    static long block(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | (y & 0xFFFL);
+    }
+}
@@ -1,13 +1,9 @@
 package io.invokegs.betterregions.features;
 
-import com.sk89q.worldedit.bukkit.BukkitAdapter;
-import com.sk89q.worldedit.bukkit.WorldEditPlugin;
 import io.invokegs.betterregions.config.Configuration;
 import io.invokegs.betterregions.config.Messages;
+import io.invokegs.betterregions.integration.ClaimContext;
 import net.kyori.adventure.text.Component;
-import org.bukkit.entity.Player;
-
-import java.math.BigInteger;
 
 /**
  * Feature that enforces block limits on region creation and modification.
@@ -31,46 +27,39 @@ public final class BlockLimitsFeature {
     }
 
     /**
-     * Validates a player's current selection against configured block limits.
-     * @param player the player to validate
+     * Validates a player's selection against configured block limits.
+     * @param context the context of the command
      * @return the validation result
      */
-    public ValidationResult validateSelection(Player player) {
-        if (config.getMinHorizontal().compareTo(BigInteger.ONE) <= 0
-                && config.getMinVertical().compareTo(BigInteger.ONE) <= 0) {
+    public ValidationResult validateSelection(ClaimContext context) {
+        var snapshot = config.snapshot();
+        if (snapshot.minHorizontal() <= 1 && snapshot.minVertical() <= 1) {
             return new ValidationResult.Allow();
         }
 
-        if (player.hasPermission("betterregions.limits.bypass")) {
+        var selection = context.selection();
+        if (context.limitsBypass() || selection == null) {
             return new ValidationResult.Allow();
         }
 
-        try {
-            var worldEdit = WorldEditPlugin.getPlugin(WorldEditPlugin.class);
-            var session = worldEdit.getSession(player);
-            var world = BukkitAdapter.adapt(player.getWorld());
-            var region = session.getSelection(world);
-
-            var min = region.getMinimumPoint();
-            var max = region.getMaximumPoint();
+        var min = selection.min();
+        var max = selection.max();
 
-            var xSize = BigInteger.valueOf(max.x() - min.x() + 1);
-            var ySize = BigInteger.valueOf(max.y() - min.y() + 1);
-            var zSize = BigInteger.valueOf(max.z() - min.z() + 1);
-            var minHorizontal = xSize.min(zSize);
+        var xSize = (long) max.x() - min.x() + 1;
+        var ySize = (long) max.y() - min.y() + 1;
+        var zSize = (long) max.z() - min.z() + 1;
+        var minHorizontal = Math.min(xSize, zSize);
 
-            if (minHorizontal.compareTo(config.getMinHorizontal()) < 0
-                    || ySize.compareTo(config.getMinVertical()) < 0) {
-                return new ValidationResult.Deny(
-                        messages.regionTooSmall(
-                                xSize, ySize, zSize,
-                                config.getMinHorizontal(),
-                                config.getMinVertical(),
-                                config.getMinHorizontal()
-                        )
-                );
-            }
-        } catch (Exception ignored) {}
+        if (minHorizontal < snapshot.minHorizontal() || ySize < snapshot.minVertical()) {
+            return new ValidationResult.Deny(
+                    messages.regionTooSmall(
+                            xSize, ySize, zSize,
+                            snapshot.minHorizontal(),
+                            snapshot.minVertical(),
+                            snapshot.minHorizontal()
+                    )
+            );
+        }
 
         return new ValidationResult.Allow();
     }
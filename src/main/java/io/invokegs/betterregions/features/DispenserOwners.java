@@ -0,0 +1,288 @@
+package io.invokegs.betterregions.features;
+
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.block.Block;
+import org.bukkit.block.Dispenser;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Owners of placed dispensers, stored per chunk. Every chunk keeps its owners in its own
+ * persistent data as a long array, and loaded chunks are mirrored in memory, so looking up the
+ * owner of a dispenser never takes a block state snapshot.
+ * <p>
+ * Owners written by earlier versions into the dispenser tile entity are moved into the chunk
+ * store the first time the dispenser is used.
+ * Accessed from the server thread only.
+ */
+final class DispenserOwners implements Listener {
+    /**
+     * Remembers in memory that a dispenser had no legacy owner, so its tile entity is read only once.
+     */
+    private static final UUID NO_OWNER = new UUID(0L, 0L);
+
+    private final Plugin plugin;
+    private final NamespacedKey chunkKey;
+    private final NamespacedKey legacyKey;
+    private final Map<UUID, LongKeyedMap<ChunkOwners>> worlds = new HashMap<>();
+
+    /**
+     * Dispenser owners of one chunk, in parallel arrays. Chunks rarely hold more than a few
+     * dispensers, so lookups scan the positions.
+     */
+    private static final class ChunkOwners {
+        private int[] positions = new int[4];
+        private UUID[] owners = new UUID[4];
+        private int size;
+
+        private @Nullable UUID get(int position) {
+            for (int i = 0; i < size; i++) {
+                if (positions[i] == position) return owners[i];
+            }
+            return null;
+        }
+
+        private void put(int position, UUID owner) {
+            for (int i = 0; i < size; i++) {
+                if (positions[i] == position) {
+                    owners[i] = owner;
+                    return;
+                }
+            }
+
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+                owners = Arrays.copyOf(owners, size * 2);
+            }
+            positions[size] = position;
+            owners[size] = owner;
+            size++;
+        }
+
+        private boolean remove(int position) {
+            for (int i = 0; i < size; i++) {
+                if (positions[i] == position) {
+                    size--;
+                    positions[i] = positions[size];
+                    owners[i] = owners[size];
+                    owners[size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private long[] encode() {
+            var data = new long[size * 3];
+            var length = 0;
+            for (int i = 0; i < size; i++) {
+                if (owners[i] == NO_OWNER) continue;
+
+                data[length++] = positions[i];
+                data[length++] = owners[i].getMostSignificantBits();
+                data[length++] = owners[i].getLeastSignificantBits();
+            }
+            return length == data.length ? data : Arrays.copyOf(data, length);
+        }
+
+        private static ChunkOwners decode(long[] data) {
+            var chunkOwners = new ChunkOwners();
+            for (int i = 0; i + 2 < data.length; i += 3) {
+                chunkOwners.put((int) data[i], new UUID(data[i + 1], data[i + 2]));
+            }
+            return chunkOwners;
+        }
+    }
+
+    DispenserOwners(Plugin plugin, NamespacedKey legacyKey) {
+        this.plugin = plugin;
+        this.chunkKey = new NamespacedKey(plugin, "dispenser_owners");
+        this.legacyKey = legacyKey;
+    }
+
+    void enable() {
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        for (var world : plugin.getServer().getWorlds()) {
+            for (var chunk : world.getLoadedChunks()) {
+                load(chunk);
+            }
+        }
+    }
+
+    void disable() {
+        ChunkLoadEvent.getHandlerList().unregister(this);
+        ChunkUnloadEvent.getHandlerList().unregister(this);
+        WorldUnloadEvent.getHandlerList().unregister(this);
+        BlockBreakEvent.getHandlerList().unregister(this);
+        EntityExplodeEvent.getHandlerList().unregister(this);
+        BlockExplodeEvent.getHandlerList().unregister(this);
+        worlds.clear();
+    }
+
+    /**
+     * Records the owner of a dispenser.
+     * @param block the dispenser block
+     * @param ownerUuid the player who placed it
+     */
+    void setOwner(Block block, UUID ownerUuid) {
+        var chunkOwners = chunkOwnersOf(block);
+        chunkOwners.put(position(block), ownerUuid);
+        save(block.getChunk(), chunkOwners);
+    }
+
+    /**
+     * Gets the owner of a dispenser, moving an owner stored by earlier versions into the chunk store.
+     * @param block the dispenser block
+     * @return the owner, or null if the dispenser has none
+     */
+    @Nullable UUID getOwner(Block block) {
+        var chunks = worlds.get(block.getWorld().getUID());
+        var chunkOwners = chunks != null ? chunks.get(BlockKeys.chunk(block.getX() >> 4, block.getZ() >> 4)) : null;
+        if (chunkOwners != null) {
+            var owner = chunkOwners.get(position(block));
+            if (owner != null) return owner == NO_OWNER ? null : owner;
+        }
+
+        return migrateLegacyOwner(block);
+    }
+
+    /**
+     * Forgets the owner of a removed dispenser.
+     * @param block the dispenser block
+     */
+    void removeOwner(Block block) {
+        var chunks = worlds.get(block.getWorld().getUID());
+        if (chunks == null) return;
+
+        var key = BlockKeys.chunk(block.getX() >> 4, block.getZ() >> 4);
+        var chunkOwners = chunks.get(key);
+        if (chunkOwners == null || !chunkOwners.remove(position(block))) return;
+
+        if (chunkOwners.size == 0) {
+            chunks.remove(key);
+        }
+        save(block.getChunk(), chunkOwners);
+    }
+
+    private @Nullable UUID migrateLegacyOwner(Block block) {
+        if (!(block.getState(false) instanceof Dispenser dispenser)) return null;
+
+        var container = dispenser.getPersistentDataContainer();
+        var ownerString = container.get(legacyKey, PersistentDataType.STRING);
+        container.remove(legacyKey);
+
+        UUID ownerUuid = null;
+        if (ownerString != null) {
+            try {
+                ownerUuid = UUID.fromString(ownerString);
+            } catch (IllegalArgumentException ignored) {}
+        }
+
+        if (ownerUuid != null) {
+            setOwner(block, ownerUuid);
+        } else {
+            chunkOwnersOf(block).put(position(block), NO_OWNER);
+        }
+        return ownerUuid;
+    }
+
+    private ChunkOwners chunkOwnersOf(Block block) {
+        var chunks = worlds.computeIfAbsent(block.getWorld().getUID(), uid -> new LongKeyedMap<>());
+        var key = BlockKeys.chunk(block.getX() >> 4, block.getZ() >> 4);
+
+        var chunkOwners = chunks.get(key);
+        if (chunkOwners == null) {
+            chunkOwners = new ChunkOwners();
+            chunks.put(key, chunkOwners);
+        }
+        return chunkOwners;
+    }
+
+    private void load(Chunk chunk) {
+        var data = chunk.getPersistentDataContainer().get(chunkKey, PersistentDataType.LONG_ARRAY);
+        if (data == null || data.length == 0) return;
+
+        worlds.computeIfAbsent(chunk.getWorld().getUID(), uid -> new LongKeyedMap<>())
+                .put(BlockKeys.chunk(chunk.getX(), chunk.getZ()), ChunkOwners.decode(data));
+    }
+
+    private void save(Chunk chunk, ChunkOwners chunkOwners) {
+        var container = chunk.getPersistentDataContainer();
+        var data = chunkOwners.encode();
+        if (data.length == 0) {
+            container.remove(chunkKey);
+        } else {
+            container.set(chunkKey, PersistentDataType.LONG_ARRAY, data);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        load(event.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        var chunks = worlds.get(event.getWorld().getUID());
+        if (chunks != null) {
+            chunks.remove(BlockKeys.chunk(event.getChunk().getX(), event.getChunk().getZ()));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        worlds.remove(event.getWorld().getUID());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        if (event.getBlock().getType() == Material.DISPENSER) {
+            removeOwner(event.getBlock());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        removeDestroyed(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        removeDestroyed(event.blockList());
+    }
+
+    private void removeDestroyed(List<Block> blocks) {
+        if (blocks.isEmpty() || worlds.isEmpty()) return;
+
+        for (var block : blocks) {
+            if (block.getType() == Material.DISPENSER) {
+                removeOwner(block);
+            }
+        }
+    }
+
+    /**
+     * Packs a block position relative to its chunk: 4 bits each for x and z, the rest for y.
+     */
+    private static int position(Block block) {
+        return block.getY() << 8 | (block.getZ() & 15) << 4 | (block.getX() & 15);
+    }
+}
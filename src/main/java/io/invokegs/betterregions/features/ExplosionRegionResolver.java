@@ -0,0 +1,164 @@
+package io.invokegs.betterregions.features;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.protection.ApplicableRegionSet;
+import com.sk89q.worldguard.protection.RegionResultSet;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import io.invokegs.betterregions.integration.WorldGuardIntegration;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the regions of every block destroyed by a single explosion.
+ * Candidate regions are queried once for the bounding box of the block list,
+ * then each block is classified against them with plain coordinate checks.
+ * Blocks covered by the same combination of regions share one region set instance, also when
+ * there are too many candidates and every block is queried through WorldGuard.
+ */
+final class ExplosionRegionResolver {
+    private static final String GLOBAL_REGION_ID = "__global__";
+
+    private final WorldGuardIntegration worldGuard;
+    private final ProtectedRegion[] candidates;
+    private final int[] bounds;
+    private final boolean[] cuboid;
+    private final @Nullable ProtectedRegion globalRegion;
+    private final boolean fallback;
+    private final Map<Long, ApplicableRegionSet> setsByMask = new HashMap<>();
+    private final Map<Set<ProtectedRegion>, ApplicableRegionSet> setsByRegions = new HashMap<>();
+
+    private long lastMask;
+    private @Nullable ApplicableRegionSet lastSet;
+
+    private ExplosionRegionResolver(WorldGuardIntegration worldGuard, List<ProtectedRegion> candidates,
+                                    @Nullable ProtectedRegion globalRegion) {
+        this.worldGuard = worldGuard;
+        this.globalRegion = globalRegion;
+        this.fallback = candidates.size() > Long.SIZE;
+        this.candidates = fallback ? new ProtectedRegion[0] : candidates.toArray(ProtectedRegion[]::new);
+        this.bounds = new int[this.candidates.length * 6];
+        this.cuboid = new boolean[this.candidates.length];
+
+        for (int i = 0; i < this.candidates.length; i++) {
+            var region = this.candidates[i];
+            var min = region.getMinimumPoint();
+            var max = region.getMaximumPoint();
+            int offset = i * 6;
+            bounds[offset] = min.x();
+            bounds[offset + 1] = min.y();
+            bounds[offset + 2] = min.z();
+            bounds[offset + 3] = max.x();
+            bounds[offset + 4] = max.y();
+            bounds[offset + 5] = max.z();
+            cuboid[i] = region instanceof ProtectedCuboidRegion;
+        }
+    }
+
+    /**
+     * Creates a resolver for the given explosion blocks.
+     * @param worldGuard the WorldGuard integration
+     * @param world the world of the explosion
+     * @param blocks the blocks affected by the explosion, must not be empty
+     * @return the resolver, or null if region management is not available in the world
+     */
+    static @Nullable ExplosionRegionResolver create(WorldGuardIntegration worldGuard, World world, List<Block> blocks) {
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+
+        for (var block : blocks) {
+            int x = block.getX(), y = block.getY(), z = block.getZ();
+            if (x < minX) minX = x;
+            if (y < minY) minY = y;
+            if (z < minZ) minZ = z;
+            if (x > maxX) maxX = x;
+            if (y > maxY) maxY = y;
+            if (z > maxZ) maxZ = z;
+        }
+
+        var manager = worldGuard.getRegionManager(world);
+        if (manager == null) return null;
+
+        return create(worldGuard, manager, minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Creates a resolver for the blocks inside a bounding box.
+     * @param worldGuard the WorldGuard integration, used for point queries if there are too many candidates
+     * @param manager the region manager of the world
+     * @return the resolver
+     */
+    static ExplosionRegionResolver create(WorldGuardIntegration worldGuard, RegionManager manager,
+                                          int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        var candidates = WorldGuardIntegration.getRegionsIntersecting(manager,
+                BlockVector3.at(minX, minY, minZ), BlockVector3.at(maxX, maxY, maxZ));
+        return new ExplosionRegionResolver(worldGuard, candidates, manager.getRegion(GLOBAL_REGION_ID));
+    }
+
+    /**
+     * Resolves the regions covering a block, including their parents like a WorldGuard point query.
+     * @param block the block, must be one of the blocks this resolver was created for
+     * @return the region set, or null if the block is not inside any region
+     */
+    @Nullable ApplicableRegionSet resolve(Block block) {
+        if (fallback) {
+            var regions = worldGuard.getRegionsAt(block.getLocation());
+            if (regions == null || regions.getRegions().isEmpty()) return null;
+
+            // Point queries return a new set per block, keep the first one per region combination
+            var canonical = setsByRegions.putIfAbsent(regions.getRegions(), regions);
+            return canonical != null ? canonical : regions;
+        }
+
+        return resolve(block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Resolves the regions covering a block position against the candidate regions.
+     * @return the region set, or null if the position is not inside any candidate region
+     */
+    @Nullable ApplicableRegionSet resolve(int x, int y, int z) {
+        long mask = 0;
+
+        for (int i = 0; i < candidates.length; i++) {
+            int offset = i * 6;
+            if (x < bounds[offset] || y < bounds[offset + 1] || z < bounds[offset + 2]
+                    || x > bounds[offset + 3] || y > bounds[offset + 4] || z > bounds[offset + 5]) {
+                continue;
+            }
+            if (cuboid[i] || candidates[i].contains(x, y, z)) {
+                mask |= 1L << i;
+            }
+        }
+
+        if (mask == 0) return null;
+        if (mask == lastMask && lastSet != null) return lastSet;
+
+        var set = setsByMask.computeIfAbsent(mask, this::createSet);
+        lastMask = mask;
+        lastSet = set;
+        return set;
+    }
+
+    private ApplicableRegionSet createSet(long mask) {
+        var regions = new LinkedHashSet<ProtectedRegion>();
+        for (int i = 0; i < candidates.length; i++) {
+            if ((mask & (1L << i)) == 0) continue;
+
+            @Nullable ProtectedRegion region = candidates[i];
+            while (region != null && regions.add(region)) {
+                region = region.getParent();
+            }
+        }
+        return new RegionResultSet(new ArrayList<>(regions), globalRegion);
+    }
+}
@@ -0,0 +1,130 @@
+package io.invokegs.betterregions.features;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing map from primitive long keys to values, so lookups by packed chunk or block
+ * positions do not box their keys. Null values are not supported.
+ * Not thread-safe.
+ * @param <V> the value type
+ */
+final class LongKeyedMap<V> {
+    private long[] keys;
+    private @Nullable Object[] values;
+    private int size;
+
+    LongKeyedMap() {
+        this.keys = new long[16];
+        this.values = new Object[16];
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable V get(long key) {
+        var mask = keys.length - 1;
+        for (int slot = mix(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    void put(long key, V value) {
+        var mask = keys.length - 1;
+        var slot = mix(key) & mask;
+        for (; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable V remove(long key) {
+        var mask = keys.length - 1;
+        for (int slot = mix(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                var removed = (V) values[slot];
+                deleteSlot(slot);
+                return removed;
+            }
+        }
+        return null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEachValue(Consumer<V> action) {
+        for (var value : values) {
+            if (value != null) {
+                action.accept((V) value);
+            }
+        }
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Removes a slot and shifts the following entries of its probe sequence back.
+     */
+    private void deleteSlot(int slot) {
+        var mask = keys.length - 1;
+        values[slot] = null;
+        size--;
+
+        for (int next = (slot + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            var home = mix(keys[next]) & mask;
+            // Move the entry if its home slot is not cyclically between the hole and its position
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                values[next] = null;
+                slot = next;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        var oldKeys = keys;
+        var oldValues = values;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+
+        var mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == null) continue;
+
+            var slot = mix(oldKeys[i]) & mask;
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private static int mix(long key) {
+        var hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,66 @@
+package io.invokegs.betterregions.features;
+
+import com.sk89q.worldguard.LocalPlayer;
+import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
+import org.bukkit.Bukkit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bounded, time-expiring cache of WorldGuard players for offline explosive owners.
+ * Avoids resolving the same offline owner through the user cache on every explosion.
+ * Accessed from the server thread only.
+ */
+final class OfflineOwnerCache {
+
+    private record Entry(LocalPlayer player, long expiresAt) {}
+
+    private final Map<UUID, Entry> entries;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    OfflineOwnerCache(int maxSize, long ttlMillis) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                return size() > OfflineOwnerCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Resolves an offline owner, loading it from the server user cache on a miss.
+     * @param ownerUuid the owner UUID
+     * @return the wrapped offline player
+     */
+    LocalPlayer resolve(UUID ownerUuid) {
+        var now = System.currentTimeMillis();
+        var entry = entries.get(ownerUuid);
+        if (entry != null && entry.expiresAt() > now) {
+            return entry.player();
+        }
+
+        var player = WorldGuardPlugin.inst().wrapOfflinePlayer(Bukkit.getOfflinePlayer(ownerUuid));
+        entries.put(ownerUuid, new Entry(player, now + ttlMillis));
+        return player;
+    }
+
+    /**
+     * Drops the cached entry of a player, e.g. when they join or quit.
+     * @param playerUuid the player UUID
+     */
+    void invalidate(UUID playerUuid) {
+        entries.remove(playerUuid);
+    }
+
+    /**
+     * Drops all cached entries.
+     */
+    void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,67 @@
+package io.invokegs.betterregions.features;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.jspecify.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Owners of TNT about to be primed, keyed by the packed position of the block the TNT entity
+ * appears at. Prime and dispense events record the owner, and the spawn of the TNT entity in
+ * the same tick takes it. Entries that were never taken expire after a few ticks.
+ * Accessed from the server thread only.
+ */
+final class PendingTntOwners {
+    private static final int MAX_AGE_TICKS = 2;
+
+    private record Key(UUID worldId, long position) {}
+
+    private record Pending(UUID ownerUuid, int tick) {}
+
+    private final Map<Key, Pending> pending = new HashMap<>();
+
+    /**
+     * Records the owner of TNT that will appear at a block.
+     * @param block the block the TNT entity spawns in
+     * @param ownerUuid the owner
+     */
+    void record(Block block, UUID ownerUuid) {
+        var key = new Key(block.getWorld().getUID(), BlockKeys.block(block.getX(), block.getY(), block.getZ()));
+        pending.put(key, new Pending(ownerUuid, Bukkit.getCurrentTick()));
+    }
+
+    /**
+     * Takes the owner of TNT that spawned at a location.
+     * @param location the spawn location of the TNT entity
+     * @return the owner, or null if none was recorded
+     */
+    @Nullable UUID take(Location location) {
+        if (pending.isEmpty()) return null;
+
+        var key = new Key(location.getWorld().getUID(),
+                BlockKeys.block(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+        var entry = pending.remove(key);
+        if (entry == null || Bukkit.getCurrentTick() - entry.tick() > MAX_AGE_TICKS) {
+            return null;
+        }
+        return entry.ownerUuid();
+    }
+
+    /**
+     * Drops entries whose TNT never spawned, e.g. because the spawn was cancelled.
+     */
+    void expire() {
+        if (pending.isEmpty()) return;
+
+        var now = Bukkit.getCurrentTick();
+        pending.values().removeIf(entry -> now - entry.tick() > MAX_AGE_TICKS);
+    }
+
+    void clear() {
+        pending.clear();
+    }
+}
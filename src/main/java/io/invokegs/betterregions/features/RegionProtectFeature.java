@@ -1,13 +1,15 @@
 package io.invokegs.betterregions.features;
 
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
 import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
 import com.sk89q.worldguard.protection.ApplicableRegionSet;
 import io.invokegs.betterregions.config.Configuration;
 import io.invokegs.betterregions.config.Messages;
+import io.invokegs.betterregions.integration.RegionIndex;
 import io.invokegs.betterregions.integration.WorldGuardIntegration;
 import org.bukkit.*;
 import org.bukkit.block.Block;
-import org.bukkit.block.Dispenser;
+import org.bukkit.block.data.Directional;
 import org.bukkit.entity.*;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -15,40 +17,110 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.block.*;
 import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.entity.EntitySpawnEvent;
 import org.bukkit.event.entity.ProjectileLaunchEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.plugin.Plugin;
 import org.jspecify.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.Locale;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public final class RegionProtectFeature implements Listener {
+    /**
+     * Bounds how long a cached build check survives region changes made outside region commands.
+     */
+    private static final long BUILD_CHECK_MAX_AGE_MILLIS = 10_000L;
+    /**
+     * Remembers in memory that an entity has no owner tag, so its persistent data is read only once.
+     */
+    private static final UUID NO_OWNER = new UUID(0L, 0L);
 
     private final Plugin plugin;
     private final Configuration config;
     private final Messages messages;
     private final WorldGuardIntegration worldGuard;
+    private final RegionIndex regionIndex;
     private final NamespacedKey ownerKey;
-    private final ConcurrentHashMap<Location, SkullPlacement> recentSkullPlacements = new ConcurrentHashMap<>();
+    private final NamespacedKey legacyOwnerKey;
+    private final SkullPlacements skullPlacements = new SkullPlacements();
+    private final LongAdder explosionDecisionHits = new LongAdder();
+    private final LongAdder explosionDecisionMisses = new LongAdder();
+    private OfflineOwnerCache offlineOwners;
+    private volatile RestrictedCommandMatcher restrictedCommands = RestrictedCommandMatcher.EMPTY;
+
+    private final Map<UUID, BuildCheck> buildChecks = new HashMap<>();
+    private final PendingTntOwners pendingTntOwners = new PendingTntOwners();
+    private final DispenserOwners dispenserOwners;
+    /**
+     * Owners of entities by entity id: owners of projectiles that are kept in memory only, and
+     * decoded owner tags, so the persistent data of an entity is read once while it is loaded.
+     */
+    private final LongKeyedMap<UUID> entityOwners = new LongKeyedMap<>();
+
+    /**
+     * Cached build permission of a player at a block, valid while the player stays on the block
+     * and the regions of the world are unchanged.
+     */
+    private record BuildCheck(UUID worldId, int x, int y, int z, long accessVersion, long checkedAt, boolean canBuild) {
+        boolean isValidAt(Location location, long accessVersion, long now) {
+            return location.getBlockX() == x && location.getBlockY() == y && location.getBlockZ() == z
+                    && this.accessVersion == accessVersion && worldId.equals(location.getWorld().getUID())
+                    && now - checkedAt < BUILD_CHECK_MAX_AGE_MILLIS;
+        }
+    }
 
-    private record SkullPlacement(UUID playerUuid, long timestamp) {}
+    /**
+     * The player an explosion is attributed to; the online player is absent when the owner is offline.
+     */
+    private record ExplosionSource(UUID ownerUuid, @Nullable Player onlinePlayer) {
+        static ExplosionSource of(Player player) {
+            return new ExplosionSource(player.getUniqueId(), player.isOnline() ? player : null);
+        }
 
-    public RegionProtectFeature(Plugin plugin, Configuration config, Messages messages, WorldGuardIntegration worldGuard) {
+        static ExplosionSource of(UUID ownerUuid) {
+            return new ExplosionSource(ownerUuid, Bukkit.getPlayer(ownerUuid));
+        }
+    }
+
+    /**
+     * Hit and miss counters of the per-explosion permission decision cache.
+     */
+    public record DecisionCacheStats(long hits, long misses) {
+        public double hitRate() {
+            var total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+
+    public RegionProtectFeature(Plugin plugin, Configuration config, Messages messages,
+                                WorldGuardIntegration worldGuard, RegionIndex regionIndex) {
         this.plugin = plugin;
         this.config = config;
         this.messages = messages;
         this.worldGuard = worldGuard;
-        this.ownerKey = new NamespacedKey(plugin, "explosion_owner");
+        this.regionIndex = regionIndex;
+        this.ownerKey = new NamespacedKey(plugin, "owner");
+        this.legacyOwnerKey = new NamespacedKey(plugin, "explosion_owner");
+        this.dispenserOwners = new DispenserOwners(plugin, legacyOwnerKey);
+        this.offlineOwners = createOfflineOwnerCache();
     }
 
     public void enable() {
         plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        dispenserOwners.enable();
         plugin.getServer().getScheduler().runTaskTimer(plugin, this::cleanupOldSkullPlacements, 6000L, 6000L);
+        plugin.getServer().getScheduler().runTaskTimer(plugin, pendingTntOwners::expire, 20L, 20L);
+        compileRestrictedCommands();
+        // Plugins enabled after this one register their commands later, resolve aliases again once the server is up
+        plugin.getServer().getScheduler().runTask(plugin, this::compileRestrictedCommands);
     }
 
     public void disable() {
@@ -63,7 +135,35 @@ public final class RegionProtectFeature implements Listener {
         BlockDispenseEvent.getHandlerList().unregister(this);
         TNTPrimeEvent.getHandlerList().unregister(this);
         ProjectileLaunchEvent.getHandlerList().unregister(this);
-        recentSkullPlacements.clear();
+        EntitySpawnEvent.getHandlerList().unregister(this);
+        EntityRemoveFromWorldEvent.getHandlerList().unregister(this);
+        PlayerJoinEvent.getHandlerList().unregister(this);
+        PlayerQuitEvent.getHandlerList().unregister(this);
+        skullPlacements.clear();
+        offlineOwners.clear();
+        buildChecks.clear();
+        pendingTntOwners.clear();
+        entityOwners.clear();
+        dispenserOwners.disable();
+    }
+
+    /**
+     * Applies reloaded configuration and drops cached owner data.
+     */
+    public void reload() {
+        this.offlineOwners = createOfflineOwnerCache();
+        buildChecks.clear();
+        compileRestrictedCommands();
+    }
+
+    private void compileRestrictedCommands() {
+        this.restrictedCommands = RestrictedCommandMatcher.compile(
+                config.getRestrictedCommands(), plugin.getServer().getCommandMap());
+    }
+
+    private OfflineOwnerCache createOfflineOwnerCache() {
+        var snapshot = config.snapshot();
+        return new OfflineOwnerCache(snapshot.ownerCacheSize(), snapshot.ownerCacheTtlSeconds() * 1000L);
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
@@ -76,8 +176,14 @@ public final class RegionProtectFeature implements Listener {
             return;
         }
 
-        var from = event.getSource().getLocation();
-        var to = event.getBlock().getLocation();
+        var source = event.getSource();
+        var target = event.getBlock();
+        if (!regionIndex.mayContainRegions(source) && !regionIndex.mayContainRegions(target)) {
+            return;
+        }
+
+        var from = source.getLocation();
+        var to = target.getLocation();
         var fromRegions = worldGuard.getRegionsAt(from);
         var toRegions = worldGuard.getRegionsAt(to);
 
@@ -101,8 +207,12 @@ public final class RegionProtectFeature implements Listener {
             return;
         }
 
-        var location = event.getBlock().getLocation();
-        var regions = worldGuard.getRegionsAt(location);
+        var block = event.getBlock();
+        if (!regionIndex.mayContainRegions(block)) {
+            return;
+        }
+
+        var regions = worldGuard.getRegionsAt(block.getLocation());
 
         if (regions != null && !regions.getRegions().isEmpty()) {
             event.setCancelled(true);
@@ -111,32 +221,24 @@ public final class RegionProtectFeature implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onTNTPrime(TNTPrimeEvent event) {
-        plugin.getServer().getScheduler().runTask(plugin, () -> {
-            var tntEntities = event.getBlock().getLocation().getWorld().getNearbyEntities(event.getBlock().getLocation(), 1, 1, 1).stream()
-                    .filter(e -> e instanceof TNTPrimed)
-                    .map(e -> (TNTPrimed) e)
-                    .filter(tnt -> !hasOwner(tnt))
-                    .toList();
-
-            if (tntEntities.isEmpty()) return;
-            var tnt = tntEntities.getFirst();
-
-            switch (event.getCause()) {
-                case PLAYER -> {
-                    var primingEntity = event.getPrimingEntity();
-                    if (primingEntity instanceof Player player) {
-                        setEntityOwner(tnt, player.getUniqueId());
-                    }
-                }
-                case PROJECTILE -> {
-                    var primingEntity = event.getPrimingEntity();
-                    if (primingEntity instanceof Projectile projectile && projectile.getShooter() instanceof Player player) {
-                        setEntityOwner(tnt, player.getUniqueId());
-                    }
-                }
-                case EXPLOSION -> handleExplosionChain(tnt, event.getBlock().getLocation());
+        var primingEntity = event.getPrimingEntity();
+        UUID ownerUuid = switch (event.getCause()) {
+            case PLAYER -> primingEntity instanceof Player player ? player.getUniqueId() : null;
+            case PROJECTILE -> {
+                if (!(primingEntity instanceof Projectile projectile)) yield null;
+                yield projectile.getShooter() instanceof Player player ? player.getUniqueId() : getEntityOwner(projectile);
             }
-        });
+            case EXPLOSION -> {
+                // Chained TNT belongs to the owner of the explosion that primed it
+                var source = primingEntity != null ? getExplosionSource(primingEntity) : null;
+                yield source != null ? source.ownerUuid() : null;
+            }
+            default -> null;
+        };
+
+        if (ownerUuid != null) {
+            pendingTntOwners.record(event.getBlock(), ownerUuid);
+        }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -144,26 +246,21 @@ public final class RegionProtectFeature implements Listener {
         if (event.getItem().getType() != Material.TNT) return;
 
         var dispenserBlock = event.getBlock();
-        var dispenserState = (Dispenser) dispenserBlock.getState();
-        var ownerString = dispenserState.getPersistentDataContainer().get(ownerKey, PersistentDataType.STRING);
-
-        if (ownerString != null) {
-            try {
-                var ownerUuid = UUID.fromString(ownerString);
+        if (!(dispenserBlock.getBlockData() instanceof Directional directional)) return;
 
-                plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                    var tntEntities = dispenserBlock.getLocation().getWorld().getNearbyEntities(dispenserBlock.getLocation(), 3, 3, 3).stream()
-                            .filter(e -> e instanceof TNTPrimed)
-                            .map(e -> (TNTPrimed) e)
-                            .filter(tnt -> !hasOwner(tnt))
-                            .toList();
+        var ownerUuid = dispenserOwners.getOwner(dispenserBlock);
+        if (ownerUuid != null) {
+            pendingTntOwners.record(dispenserBlock.getRelative(directional.getFacing()), ownerUuid);
+        }
+    }
 
-                    for (var tnt : tntEntities) {
-                        setEntityOwner(tnt, ownerUuid);
-                    }
-                }, 1L);
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTntSpawn(EntitySpawnEvent event) {
+        if (!(event.getEntity() instanceof TNTPrimed tnt)) return;
 
-            } catch (IllegalArgumentException ignored) {}
+        var ownerUuid = pendingTntOwners.take(tnt.getLocation());
+        if (ownerUuid != null && !hasOwner(tnt)) {
+            setEntityOwner(tnt, ownerUuid);
         }
     }
 
@@ -176,31 +273,32 @@ public final class RegionProtectFeature implements Listener {
 
         var entity = event.getEntity();
         var location = event.getLocation();
-        var player = getExplosionSourceOffline(entity);
+        var source = getExplosionSource(entity);
 
-        var blocksToRemove = new ArrayList<Block>();
+        var decisions = source != null && (explosionMode == Configuration.ExplosionMode.BUILDER_ONLY
+                || explosionMode == Configuration.ExplosionMode.MEMBER_ONLY)
+                ? new ExplosionDecisions(source, explosionMode) : null;
 
-        for (var block : event.blockList()) {
-            var blockRegions = worldGuard.getRegionsAt(block.getLocation());
+        var blocks = event.blockList();
+        var resolver = blocks.isEmpty() ? null
+                : ExplosionRegionResolver.create(worldGuard, location.getWorld(), blocks);
 
-            if (blockRegions == null || blockRegions.getRegions().isEmpty()) {
-                continue;
-            }
-
-            boolean blockExplosion = switch (explosionMode) {
-                case NO_EXPLOSIONS, ENTITY_DAMAGE_ONLY -> true;
-                case BUILDER_ONLY, MEMBER_ONLY ->
-                        player == null || !canPlayerExplodeAt(player, block.getLocation(), blockRegions, explosionMode);
-                default -> false;
-            };
+        if (resolver != null) {
+            blocks.removeIf(block -> {
+                var blockRegions = resolver.resolve(block);
+                if (blockRegions == null) {
+                    return false;
+                }
 
-            if (blockExplosion) {
-                blocksToRemove.add(block);
-            }
+                return switch (explosionMode) {
+                    case NO_EXPLOSIONS, ENTITY_DAMAGE_ONLY -> true;
+                    case BUILDER_ONLY, MEMBER_ONLY ->
+                            decisions == null || !decisions.canExplode(block, blockRegions);
+                    default -> false;
+                };
+            });
         }
 
-        event.blockList().removeAll(blocksToRemove);
-
         if (explosionMode == Configuration.ExplosionMode.NO_EXPLOSIONS) {
             var centerRegions = worldGuard.getRegionsAt(location);
             if (centerRegions != null && !centerRegions.getRegions().isEmpty()) {
@@ -216,8 +314,12 @@ public final class RegionProtectFeature implements Listener {
             return;
         }
 
-        var location = event.getBlock().getLocation();
-        var regions = worldGuard.getRegionsAt(location);
+        var block = event.getBlock();
+        if (!regionIndex.mayContainRegions(block)) {
+            return;
+        }
+
+        var regions = worldGuard.getRegionsAt(block.getLocation());
 
         if (regions == null || regions.getRegions().isEmpty()) {
             return;
@@ -243,6 +345,10 @@ public final class RegionProtectFeature implements Listener {
         }
 
         var location = event.getEntity().getLocation();
+        if (!regionIndex.mayContainRegions(location)) {
+            return;
+        }
+
         var regions = worldGuard.getRegionsAt(location);
 
         if (regions != null && !regions.getRegions().isEmpty()) {
@@ -252,31 +358,35 @@ public final class RegionProtectFeature implements Listener {
 
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onCommandPreprocess(PlayerCommandPreprocessEvent event) {
-        var restrictedCommands = config.getRestrictedCommands();
-        if (restrictedCommands.isEmpty()) return;
+        if (!restrictedCommands.matches(event.getMessage())) return;
 
         var player = event.getPlayer();
-        var location = player.getLocation();
-
-        if (worldGuard.canBypass(player) || worldGuard.canBuild(player, location)) {
+        if (canBuildHere(player) || worldGuard.canBypass(player)) {
             return;
         }
 
-        var command = event.getMessage().substring(1).toLowerCase(Locale.ROOT);
-        for (var restricted : restrictedCommands) {
-            var normalizedRestricted = restricted.toLowerCase(Locale.ROOT);
-            if (normalizedRestricted.startsWith("/")) {
-                normalizedRestricted = normalizedRestricted.substring(1);
-            }
+        event.setCancelled(true);
+        player.sendMessage(messages.commandRestrictedInRegion());
+    }
 
-            if (command.startsWith(normalizedRestricted) &&
-                    (command.length() == normalizedRestricted.length() ||
-                            command.charAt(normalizedRestricted.length()) == ' ')) {
-                event.setCancelled(true);
-                player.sendMessage(messages.commandRestrictedInRegion());
-                return;
-            }
+    /**
+     * Checks whether a player can build at their location, reusing the last result while the
+     * player has not moved to another block and no region of the world changed.
+     */
+    private boolean canBuildHere(Player player) {
+        var location = player.getLocation();
+        var accessVersion = regionIndex.getAccessVersion(location.getWorld());
+        var now = System.currentTimeMillis();
+
+        var cached = buildChecks.get(player.getUniqueId());
+        if (cached != null && cached.isValidAt(location, accessVersion, now)) {
+            return cached.canBuild();
         }
+
+        var canBuild = worldGuard.canBuild(player, location);
+        buildChecks.put(player.getUniqueId(), new BuildCheck(location.getWorld().getUID(),
+                location.getBlockX(), location.getBlockY(), location.getBlockZ(), accessVersion, now, canBuild));
+        return canBuild;
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -285,13 +395,10 @@ public final class RegionProtectFeature implements Listener {
         var player = event.getPlayer();
 
         if (block.getType() == Material.DISPENSER) {
-            var dispenserState = (Dispenser) block.getState();
-            dispenserState.getPersistentDataContainer().set(ownerKey, PersistentDataType.STRING, player.getUniqueId().toString());
-            dispenserState.update();
+            dispenserOwners.setOwner(block, player.getUniqueId());
         }
         else if (block.getType() == Material.WITHER_SKELETON_SKULL || block.getType() == Material.WITHER_SKELETON_WALL_SKULL) {
-            recentSkullPlacements.put(block.getLocation(), new SkullPlacement(player.getUniqueId(), System.currentTimeMillis()));
-            cleanupOldSkullPlacements();
+            skullPlacements.record(block, player.getUniqueId(), config.getSkullRetentionSeconds() * 1000L);
         }
     }
 
@@ -300,80 +407,115 @@ public final class RegionProtectFeature implements Listener {
         if (!(event.getEntity() instanceof Wither wither)) return;
         if (event.getSpawnReason() != org.bukkit.event.entity.CreatureSpawnEvent.SpawnReason.BUILD_WITHER) return;
 
-        var witherLocation = wither.getLocation();
-
-        var nearbySkullPlacements = recentSkullPlacements.entrySet().stream()
-                .filter(entry -> {
-                    var skullLoc = entry.getKey();
-                    var placement = entry.getValue();
-
-                    if (skullLoc.getWorld().equals(witherLocation.getWorld()) &&
-                            skullLoc.distance(witherLocation) <= 5.0) {
-                        return (System.currentTimeMillis() - placement.timestamp()) <= 30000;
-                    }
-                    return false;
-                })
-                .toList();
-
-        if (!nearbySkullPlacements.isEmpty()) {
-            var mostRecentPlacement = nearbySkullPlacements.stream()
-                    .max(Comparator.comparingLong(a -> a.getValue().timestamp()))
-                    .get();
-
-            var spawnerUuid = mostRecentPlacement.getValue().playerUuid();
+        var spawnerUuid = skullPlacements.claimNearest(wither.getLocation(), config.getSkullMatchWindowSeconds() * 1000L);
+        if (spawnerUuid != null) {
             setEntityOwner(wither, spawnerUuid);
-
-            nearbySkullPlacements.forEach(entry -> recentSkullPlacements.remove(entry.getKey()));
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        offlineOwners.invalidate(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        offlineOwners.invalidate(event.getPlayer().getUniqueId());
+        buildChecks.remove(event.getPlayer().getUniqueId());
+    }
+
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onProjectileLaunch(ProjectileLaunchEvent event) {
         var projectile = event.getEntity();
         var shooter = projectile.getShooter();
 
+        UUID ownerUuid = null;
         if (projectile instanceof WitherSkull && shooter instanceof Wither wither) {
-            var witherOwner = getEntityOwner(wither);
-            if (witherOwner != null) {
-                setEntityOwner(projectile, witherOwner);
-            }
+            ownerUuid = getEntityOwner(wither);
+        } else if (shooter instanceof Player player) {
+            ownerUuid = player.getUniqueId();
+        }
+        if (ownerUuid == null) return;
+
+        // Only projectiles that explode or ignite TNT need their owner to survive a chunk reload
+        if (canCauseExplosion(projectile)) {
+            setEntityOwner(projectile, ownerUuid);
+        } else {
+            entityOwners.put(projectile.getEntityId(), ownerUuid);
         }
-        else if (shooter instanceof Player player) {
-            setEntityOwner(projectile, player.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityRemove(EntityRemoveFromWorldEvent event) {
+        if (!entityOwners.isEmpty()) {
+            entityOwners.remove(event.getEntity().getEntityId());
         }
     }
 
+    private static boolean canCauseExplosion(Projectile projectile) {
+        return projectile instanceof Fireball
+                || projectile instanceof AbstractArrow arrow && arrow.getFireTicks() > 0;
+    }
+
     private void setEntityOwner(Entity entity, UUID ownerUuid) {
-        entity.getPersistentDataContainer().set(ownerKey, PersistentDataType.STRING, ownerUuid.toString());
+        writeOwnerTag(entity.getPersistentDataContainer(), ownerUuid);
+        entityOwners.put(entity.getEntityId(), ownerUuid);
     }
 
     private @Nullable UUID getEntityOwner(Entity entity) {
-        var container = entity.getPersistentDataContainer();
-        var ownerString = container.get(ownerKey, PersistentDataType.STRING);
-        if (ownerString != null) {
-            try {
-                return UUID.fromString(ownerString);
-            } catch (IllegalArgumentException ignored) {}
+        var cached = entityOwners.get(entity.getEntityId());
+        if (cached != null) {
+            return cached == NO_OWNER ? null : cached;
         }
-        return null;
+
+        var ownerUuid = readOwnerTag(entity.getPersistentDataContainer());
+        entityOwners.put(entity.getEntityId(), ownerUuid != null ? ownerUuid : NO_OWNER);
+        return ownerUuid;
+    }
+
+    /**
+     * Reads the owner tag of an entity, rewriting a tag stored as text by earlier versions.
+     */
+    private @Nullable UUID readOwnerTag(PersistentDataContainer container) {
+        var bits = container.get(ownerKey, PersistentDataType.LONG_ARRAY);
+        if (bits != null && bits.length == 2) {
+            return new UUID(bits[0], bits[1]);
+        }
+
+        var ownerString = container.get(legacyOwnerKey, PersistentDataType.STRING);
+        if (ownerString == null) return null;
+
+        container.remove(legacyOwnerKey);
+        try {
+            var ownerUuid = UUID.fromString(ownerString);
+            writeOwnerTag(container, ownerUuid);
+            return ownerUuid;
+        } catch (IllegalArgumentException ignored) {
+            return null;
+        }
+    }
+
+    private void writeOwnerTag(PersistentDataContainer container, UUID ownerUuid) {
+        container.set(ownerKey, PersistentDataType.LONG_ARRAY,
+                new long[] {ownerUuid.getMostSignificantBits(), ownerUuid.getLeastSignificantBits()});
     }
 
     private boolean hasOwner(Entity entity) {
         return getEntityOwner(entity) != null;
     }
 
-    private @Nullable OfflinePlayer getExplosionSourceOffline(Entity entity) {
+    private @Nullable ExplosionSource getExplosionSource(Entity entity) {
         var ownerUuid = getEntityOwner(entity);
         if (ownerUuid != null) {
-            return Bukkit.getOfflinePlayer(ownerUuid);
+            return ExplosionSource.of(ownerUuid);
         }
 
         if (entity instanceof TNTPrimed tnt) {
             var source = tnt.getSource();
             if (source instanceof Player player) {
-                return player;
+                return ExplosionSource.of(player);
             } else if (source instanceof Projectile projectile && projectile.getShooter() instanceof Player player) {
-                return player;
+                return ExplosionSource.of(player);
             }
         }
 
@@ -382,33 +524,69 @@ public final class RegionProtectFeature implements Listener {
             if (shooter instanceof Wither wither) {
                 var witherOwner = getEntityOwner(wither);
                 if (witherOwner != null) {
-                    return Bukkit.getOfflinePlayer(witherOwner);
+                    return ExplosionSource.of(witherOwner);
                 }
             } else if (shooter instanceof Player player) {
-                return player;
+                return ExplosionSource.of(player);
             }
         }
 
         if (entity instanceof Creeper creeper) {
             var target = creeper.getTarget();
             if (target instanceof Player player) {
-                return player;
+                return ExplosionSource.of(player);
             }
         }
 
         if (entity instanceof Fireball fireball) {
             var shooter = fireball.getShooter();
             if (shooter instanceof Player player) {
-                return player;
+                return ExplosionSource.of(player);
             }
         }
 
         return null;
     }
 
-    private boolean canPlayerExplodeAt(OfflinePlayer player, Location location, ApplicableRegionSet regions, Configuration.ExplosionMode mode) {
-        if (player.isOnline() && player.getPlayer() != null) {
-            var onlinePlayer = player.getPlayer();
+    /**
+     * Gets the counters of the per-explosion permission decision cache.
+     * @return the current cache statistics
+     */
+    public DecisionCacheStats getExplosionDecisionStats() {
+        return new DecisionCacheStats(explosionDecisionHits.sum(), explosionDecisionMisses.sum());
+    }
+
+    /**
+     * Permission decisions of a single explosion event, keyed by region set identity.
+     * Blocks sharing a region combination are evaluated only once.
+     */
+    private final class ExplosionDecisions {
+        private final ExplosionSource source;
+        private final Configuration.ExplosionMode mode;
+        private final Map<ApplicableRegionSet, Boolean> decisions = new IdentityHashMap<>();
+
+        private ExplosionDecisions(ExplosionSource source, Configuration.ExplosionMode mode) {
+            this.source = source;
+            this.mode = mode;
+        }
+
+        private boolean canExplode(Block block, ApplicableRegionSet regions) {
+            var cached = decisions.get(regions);
+            if (cached != null) {
+                explosionDecisionHits.increment();
+                return cached;
+            }
+
+            explosionDecisionMisses.increment();
+            var decision = canPlayerExplodeAt(source, block.getLocation(), regions, mode);
+            decisions.put(regions, decision);
+            return decision;
+        }
+    }
+
+    private boolean canPlayerExplodeAt(ExplosionSource source, Location location, ApplicableRegionSet regions, Configuration.ExplosionMode mode) {
+        var onlinePlayer = source.onlinePlayer();
+        if (onlinePlayer != null) {
             if (worldGuard.canBypass(onlinePlayer)) {
                 return true;
             }
@@ -420,7 +598,7 @@ public final class RegionProtectFeature implements Listener {
             };
         }
 
-        var localPlayer = WorldGuardPlugin.inst().wrapOfflinePlayer(player);
+        var localPlayer = offlineOwners.resolve(source.ownerUuid());
         boolean isOwner = regions.isOwnerOfAll(localPlayer);
         boolean isMember = regions.isMemberOfAll(localPlayer);
 
@@ -440,24 +618,7 @@ public final class RegionProtectFeature implements Listener {
         return regions.isOwnerOfAll(localPlayer) || regions.isMemberOfAll(localPlayer);
     }
 
-    private void handleExplosionChain(TNTPrimed newTnt, Location primeLocation) {
-        var nearbyExplosives = primeLocation.getWorld().getNearbyEntities(primeLocation, 10, 10, 10).stream()
-                .filter(e -> e instanceof TNTPrimed || e instanceof Creeper || e instanceof Wither)
-                .filter(this::hasOwner)
-                .toList();
-
-        for (var explosive : nearbyExplosives) {
-            var ownerUuid = getEntityOwner(explosive);
-            if (ownerUuid != null) {
-                setEntityOwner(newTnt, ownerUuid);
-                break;
-            }
-        }
-    }
-
     private void cleanupOldSkullPlacements() {
-        var currentTime = System.currentTimeMillis();
-        var cutoffTime = currentTime - 60000;
-        recentSkullPlacements.entrySet().removeIf(entry -> entry.getValue().timestamp() < cutoffTime);
+        skullPlacements.expire(System.currentTimeMillis() - config.getSkullRetentionSeconds() * 1000L);
     }
 }
\ No newline at end of file
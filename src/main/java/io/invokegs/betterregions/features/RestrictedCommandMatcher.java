@@ -0,0 +1,153 @@
+package io.invokegs.betterregions.features;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandMap;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matches command messages against the restricted commands of the configuration.
+ * Compiled once per reload into an open-addressed table of command labels, expanded through
+ * the command map to every alias and namespaced label of the restricted commands.
+ * Matching hashes the first token of the message in place and does not allocate.
+ */
+final class RestrictedCommandMatcher {
+    static final RestrictedCommandMatcher EMPTY = new RestrictedCommandMatcher(Map.of());
+
+    private static final String[] ANY_ARGUMENTS = {""};
+
+    private final String[] labels;
+    private final String[][] argumentPrefixes;
+    private final int mask;
+    private final int size;
+
+    private RestrictedCommandMatcher(Map<String, Set<String>> entries) {
+        var capacity = Integer.highestOneBit(Math.max(4, entries.size() * 2 - 1)) << 1;
+        this.labels = new String[capacity];
+        this.argumentPrefixes = new String[capacity][];
+        this.mask = capacity - 1;
+        this.size = entries.size();
+
+        for (var entry : entries.entrySet()) {
+            var label = entry.getKey();
+            var slot = hash(label, 0, label.length()) & mask;
+            while (labels[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            labels[slot] = label;
+            argumentPrefixes[slot] = entry.getValue().contains("") ? ANY_ARGUMENTS : entry.getValue().toArray(String[]::new);
+        }
+    }
+
+    /**
+     * Compiles the restricted command entries of the configuration.
+     * An entry is a command label with an optional leading slash, optionally followed by the
+     * arguments it is restricted with, e.g. {@code /home set}.
+     * @param entries the configured entries
+     * @param commandMap the command map to resolve aliases from, or null to match the labels as written
+     * @return the matcher
+     */
+    static RestrictedCommandMatcher compile(Collection<String> entries, @Nullable CommandMap commandMap) {
+        if (entries.isEmpty()) return EMPTY;
+
+        var compiled = new LinkedHashMap<String, Set<String>>();
+        for (var entry : entries) {
+            var trimmed = entry.strip();
+            if (trimmed.startsWith("/")) {
+                trimmed = trimmed.substring(1);
+            }
+            if (trimmed.isEmpty()) continue;
+
+            var separator = trimmed.indexOf(' ');
+            var label = normalize(separator < 0 ? trimmed : trimmed.substring(0, separator));
+            var arguments = separator < 0 ? "" : normalize(trimmed.substring(separator + 1).strip());
+
+            for (var alias : resolveLabels(label, commandMap)) {
+                compiled.computeIfAbsent(alias, key -> new LinkedHashSet<>()).add(arguments);
+            }
+        }
+
+        return compiled.isEmpty() ? EMPTY : new RestrictedCommandMatcher(compiled);
+    }
+
+    /**
+     * Checks whether a command message runs a restricted command.
+     * @param message the command message, with or without the leading slash
+     * @return true if the command is restricted
+     */
+    boolean matches(String message) {
+        if (size == 0) return false;
+
+        var start = !message.isEmpty() && message.charAt(0) == '/' ? 1 : 0;
+        var end = message.indexOf(' ', start);
+        if (end < 0) end = message.length();
+
+        var length = end - start;
+        if (length == 0) return false;
+
+        for (var slot = hash(message, start, end) & mask; labels[slot] != null; slot = (slot + 1) & mask) {
+            var label = labels[slot];
+            if (label.length() == length && message.regionMatches(true, start, label, 0, length)) {
+                return matchesArguments(message, end, argumentPrefixes[slot]);
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesArguments(String message, int labelEnd, String[] prefixes) {
+        for (var prefix : prefixes) {
+            if (prefix.isEmpty()) return true;
+
+            var start = labelEnd + 1;
+            var end = start + prefix.length();
+            if (labelEnd < message.length() && end <= message.length()
+                    && message.regionMatches(true, start, prefix, 0, prefix.length())
+                    && (end == message.length() || message.charAt(end) == ' ')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> resolveLabels(String label, @Nullable CommandMap commandMap) {
+        var labels = new ArrayList<String>();
+        labels.add(label);
+        if (commandMap == null) return labels;
+
+        Command command = commandMap.getCommand(label);
+        if (command == null) return labels;
+
+        for (var known : commandMap.getKnownCommands().entrySet()) {
+            if (known.getValue() == command) {
+                labels.add(normalize(known.getKey()));
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Lower-cases a label the same way {@link #hash} folds characters.
+     */
+    private static String normalize(String value) {
+        var chars = value.toCharArray();
+        for (var i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static int hash(String value, int start, int end) {
+        var hash = 0;
+        for (var i = start; i < end; i++) {
+            hash = 31 * hash + Character.toLowerCase(value.charAt(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,138 @@
+package io.invokegs.betterregions.features;
+
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Recent wither skull placements, used to attribute a built wither to the player who placed its skulls.
+ * Placements are bucketed by chunk, so a lookup only visits the chunks around the wither, and kept
+ * in a queue ordered by placement time, so expiring old placements only touches the expired ones.
+ * Accessed from the server thread only.
+ */
+final class SkullPlacements {
+    private static final double MATCH_RADIUS = 5.0;
+
+    private record Placement(UUID worldId, long chunkKey, int x, int y, int z, UUID playerUuid, long timestamp) {}
+
+    private final Map<UUID, LongKeyedMap<List<Placement>>> worlds = new HashMap<>();
+    private final Deque<Placement> expiryQueue = new ArrayDeque<>();
+
+    /**
+     * Records a skull placement and drops placements older than the retention time.
+     * @param block the skull block
+     * @param playerUuid the player who placed it
+     * @param retentionMillis how long placements are kept
+     */
+    void record(Block block, UUID playerUuid, long retentionMillis) {
+        var now = System.currentTimeMillis();
+        expire(now - retentionMillis);
+
+        var worldId = block.getWorld().getUID();
+        var chunkKey = BlockKeys.chunk(block.getX() >> 4, block.getZ() >> 4);
+        var placement = new Placement(worldId, chunkKey, block.getX(), block.getY(), block.getZ(), playerUuid, now);
+
+        var chunks = worlds.computeIfAbsent(worldId, uid -> new LongKeyedMap<>());
+        var bucket = chunks.get(chunkKey);
+        if (bucket == null) {
+            bucket = new ArrayList<>(4);
+            chunks.put(chunkKey, bucket);
+        }
+        bucket.add(placement);
+        expiryQueue.addLast(placement);
+    }
+
+    /**
+     * Finds the player who most recently placed a skull near a location and consumes all
+     * skull placements near it.
+     * @param location the spawn location of the wither
+     * @param matchWindowMillis how old a placement may be to match
+     * @return the player, or null if no recent placement is near
+     */
+    @Nullable UUID claimNearest(Location location, long matchWindowMillis) {
+        var chunks = worlds.get(location.getWorld().getUID());
+        if (chunks == null) return null;
+
+        var cutoff = System.currentTimeMillis() - matchWindowMillis;
+        var minChunkX = (int) Math.floor(location.getX() - MATCH_RADIUS) >> 4;
+        var maxChunkX = (int) Math.floor(location.getX() + MATCH_RADIUS) >> 4;
+        var minChunkZ = (int) Math.floor(location.getZ() - MATCH_RADIUS) >> 4;
+        var maxChunkZ = (int) Math.floor(location.getZ() + MATCH_RADIUS) >> 4;
+
+        Placement latest = null;
+        for (var chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (var chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                var chunkKey = BlockKeys.chunk(chunkX, chunkZ);
+                var bucket = chunks.get(chunkKey);
+                if (bucket == null) continue;
+
+                for (var iterator = bucket.iterator(); iterator.hasNext(); ) {
+                    var placement = iterator.next();
+                    if (placement.timestamp() < cutoff || !isNear(placement, location)) continue;
+
+                    if (latest == null || placement.timestamp() >= latest.timestamp()) {
+                        latest = placement;
+                    }
+                    iterator.remove();
+                }
+                if (bucket.isEmpty()) {
+                    chunks.remove(chunkKey);
+                }
+            }
+        }
+
+        return latest != null ? latest.playerUuid() : null;
+    }
+
+    /**
+     * Drops placements older than a cutoff. Placements already consumed by a wither are skipped.
+     * @param cutoff the oldest placement time to keep
+     */
+    void expire(long cutoff) {
+        for (var placement = expiryQueue.peekFirst(); placement != null && placement.timestamp() < cutoff;
+             placement = expiryQueue.peekFirst()) {
+            expiryQueue.pollFirst();
+
+            var chunks = worlds.get(placement.worldId());
+            var bucket = chunks != null ? chunks.get(placement.chunkKey()) : null;
+            if (bucket == null) continue;
+
+            removeIdentity(bucket, placement);
+            if (bucket.isEmpty()) {
+                chunks.remove(placement.chunkKey());
+                if (chunks.isEmpty()) {
+                    worlds.remove(placement.worldId());
+                }
+            }
+        }
+    }
+
+    void clear() {
+        worlds.clear();
+        expiryQueue.clear();
+    }
+
+    private static boolean isNear(Placement placement, Location location) {
+        var dx = placement.x() - location.getX();
+        var dy = placement.y() - location.getY();
+        var dz = placement.z() - location.getZ();
+        return dx * dx + dy * dy + dz * dz <= MATCH_RADIUS * MATCH_RADIUS;
+    }
+
+    private static void removeIdentity(List<Placement> bucket, Placement placement) {
+        for (int i = 0; i < bucket.size(); i++) {
+            if (bucket.get(i) == placement) {
+                bucket.remove(i);
+                return;
+            }
+        }
+    }
+}
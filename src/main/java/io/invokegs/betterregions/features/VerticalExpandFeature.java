@@ -1,11 +1,9 @@
 package io.invokegs.betterregions.features;
 
-import com.sk89q.worldedit.bukkit.BukkitAdapter;
-import com.sk89q.worldedit.bukkit.WorldEditPlugin;
 import com.sk89q.worldedit.math.BlockVector3;
 import io.invokegs.betterregions.config.Configuration;
 import io.invokegs.betterregions.config.Messages;
-import org.bukkit.entity.Player;
+import io.invokegs.betterregions.integration.ClaimContext;
 
 /**
  * Feature that automatically expands player selections to full vertical range.
@@ -23,18 +21,17 @@ public final class VerticalExpandFeature {
 
     /**
      * Attempts to expand a player's selection vertically.
-     * @param player the player whose selection to expand
-     * @return true if the expansion was successful
+     * @param context the context of the command
+     * @return the context with the expanded selection, or the given context if nothing was expanded
      */
-    public boolean expandVertically(Player player) {
-        if (!config.isVerticalExpandEnabled()) {
-            return false;
+    public ClaimContext expandVertically(ClaimContext context) {
+        if (!config.isVerticalExpandEnabled() || context.selection() == null) {
+            return context;
         }
 
         try {
-            var worldEdit = WorldEditPlugin.getPlugin(WorldEditPlugin.class);
-            var session = worldEdit.getSession(player);
-            var world = BukkitAdapter.adapt(player.getWorld());
+            var session = context.session();
+            var world = context.editWorld();
 
             var region = session.getSelection(world);
             var minY = world.getMinY();
@@ -46,23 +43,23 @@ public final class VerticalExpandFeature {
             );
 
             session.getRegionSelector(world).learnChanges();
-            return true;
+            return context.withSelection(region);
 
         } catch (Exception e) {
-            return false;
+            return context;
         }
     }
 
     /**
      * Expands a player's selection and sends a confirmation message.
-     * @param player the player whose selection to expand
-     * @return true if the expansion was successful and confirmed
+     * @param context the context of the command
+     * @return the context with the expanded selection, or the given context if nothing was expanded
      */
-    public boolean expandVerticallyWithMessage(Player player) {
-        if (expandVertically(player)) {
-            player.sendMessage(messages.verticalExpansionApplied());
-            return true;
+    public ClaimContext expandVerticallyWithMessage(ClaimContext context) {
+        var expanded = expandVertically(context);
+        if (expanded != context) {
+            context.player().sendMessage(messages.verticalExpansionApplied());
         }
-        return false;
+        return expanded;
     }
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+package io.invokegs.betterregions.integration;
+
+import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.Plugin;
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Runs economy provider calls on a dedicated thread, so SQL-backed economies never block
+ * the server thread. Calls are executed one at a time in submission order.
+ * <p>
+ * Vault has no native reservations, so a {@link Hold} withdraws the money into escrow
+ * until it is captured by a completed purchase or released back to the player.
+ */
+public final class AsyncEconomy {
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final Plugin plugin;
+    private final VaultIntegration vault;
+    private final ExecutorService executor;
+    private final Set<Hold> openHolds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Money withdrawn from a player and held until the purchase is completed or cancelled.
+     */
+    public static final class Hold {
+        private final OfflinePlayer player;
+        private final double amount;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Hold(OfflinePlayer player, double amount) {
+            this.player = player;
+            this.amount = amount;
+        }
+
+        public double amount() {
+            return amount;
+        }
+    }
+
+    public AsyncEconomy(Plugin plugin, VaultIntegration vault) {
+        this.plugin = plugin;
+        this.vault = vault;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "BetterRegions Economy");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reads the balance of a player.
+     * @param player the player
+     * @return the balance, or 0.0 if economy is not available
+     */
+    public CompletableFuture<Double> getBalance(OfflinePlayer player) {
+        return supply(() -> vault.getBalance(player));
+    }
+
+    /**
+     * Withdraws money from a player into escrow.
+     * @param player the player to charge
+     * @param amount the amount to hold
+     * @return the hold, or null if the player could not be charged
+     */
+    public CompletableFuture<@Nullable Hold> hold(OfflinePlayer player, double amount) {
+        return supply(() -> {
+            if (!vault.withdraw(player, amount)) return null;
+
+            var hold = new Hold(player, amount);
+            openHolds.add(hold);
+            return hold;
+        });
+    }
+
+    /**
+     * Keeps the money of a hold, completing the purchase. Does not call the economy provider.
+     * @param hold the hold
+     */
+    public void capture(Hold hold) {
+        if (hold.settled.compareAndSet(false, true)) {
+            openHolds.remove(hold);
+        }
+    }
+
+    /**
+     * Returns the money of a hold to the player.
+     * @param hold the hold
+     * @return true if the money was returned or the hold was already settled
+     */
+    public CompletableFuture<Boolean> release(Hold hold) {
+        if (!hold.settled.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return supply(() -> refund(hold));
+    }
+
+    /**
+     * Finishes queued provider calls and refunds every hold that was not captured.
+     * Blocks for at most a few seconds, call on plugin disable only.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Economy operations did not finish in time, running the rest on shutdown");
+                executor.shutdownNow().forEach(Runnable::run);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (var hold : List.copyOf(openHolds)) {
+            if (hold.settled.compareAndSet(false, true)) {
+                refund(hold);
+            }
+        }
+    }
+
+    private boolean refund(Hold hold) {
+        try {
+            var refunded = vault.deposit(hold.player, hold.amount);
+            if (!refunded) {
+                plugin.getLogger().severe("Failed to return held " + hold.amount + " to " + hold.player.getName());
+            }
+            return refunded;
+        } finally {
+            openHolds.remove(hold);
+        }
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> operation) {
+        try {
+            return CompletableFuture.supplyAsync(operation, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package io.invokegs.betterregions.integration;
+
+import java.util.Arrays;
+
+/**
+ * Compact set of chunk coordinates backed by an open-addressing map of 64-bit words.
+ * Every word covers an 8x8 group of chunks, so a set bit costs one bit of memory in dense areas.
+ * Areas too large to enumerate are kept as plain rectangles instead.
+ * Not thread-safe.
+ */
+final class ChunkBitmap {
+    // Would need a chunk group X of Integer.MIN_VALUE, far outside any world border
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+    private static final int GROUP_SHIFT = 3;
+    private static final int GROUP_MASK = (1 << GROUP_SHIFT) - 1;
+    private static final long MAX_AREA_GROUPS = 4096;
+
+    private long[] keys;
+    private long[] words;
+    private int size;
+    private int[] largeAreas = new int[0];
+
+    ChunkBitmap() {
+        this.keys = newKeys(64);
+        this.words = new long[64];
+    }
+
+    /**
+     * Checks whether a chunk is in the set.
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @return true if the chunk was added directly or as part of an area
+     */
+    boolean contains(int chunkX, int chunkZ) {
+        var key = groupKey(chunkX >> GROUP_SHIFT, chunkZ >> GROUP_SHIFT);
+        var mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            var current = keys[slot];
+            if (current == key) {
+                if ((words[slot] & bit(chunkX, chunkZ)) != 0) return true;
+                break;
+            }
+            if (current == EMPTY_KEY) break;
+        }
+
+        for (int i = 0; i < largeAreas.length; i += 4) {
+            if (chunkX >= largeAreas[i] && chunkZ >= largeAreas[i + 1]
+                    && chunkX <= largeAreas[i + 2] && chunkZ <= largeAreas[i + 3]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds every chunk of a rectangular chunk area.
+     * @param minChunkX the minimum chunk X coordinate
+     * @param minChunkZ the minimum chunk Z coordinate
+     * @param maxChunkX the maximum chunk X coordinate
+     * @param maxChunkZ the maximum chunk Z coordinate
+     */
+    void addArea(int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        int minGroupX = minChunkX >> GROUP_SHIFT, maxGroupX = maxChunkX >> GROUP_SHIFT;
+        int minGroupZ = minChunkZ >> GROUP_SHIFT, maxGroupZ = maxChunkZ >> GROUP_SHIFT;
+
+        if ((long) (maxGroupX - minGroupX + 1) * (maxGroupZ - minGroupZ + 1) > MAX_AREA_GROUPS) {
+            addLargeArea(minChunkX, minChunkZ, maxChunkX, maxChunkZ);
+            return;
+        }
+
+        for (int groupX = minGroupX; groupX <= maxGroupX; groupX++) {
+            int fromX = groupX == minGroupX ? minChunkX & GROUP_MASK : 0;
+            int toX = groupX == maxGroupX ? maxChunkX & GROUP_MASK : GROUP_MASK;
+
+            for (int groupZ = minGroupZ; groupZ <= maxGroupZ; groupZ++) {
+                int fromZ = groupZ == minGroupZ ? minChunkZ & GROUP_MASK : 0;
+                int toZ = groupZ == maxGroupZ ? maxChunkZ & GROUP_MASK : GROUP_MASK;
+
+                long word = 0;
+                for (int x = fromX; x <= toX; x++) {
+                    for (int z = fromZ; z <= toZ; z++) {
+                        word |= 1L << ((x << GROUP_SHIFT) | z);
+                    }
+                }
+                orWord(groupKey(groupX, groupZ), word);
+            }
+        }
+    }
+
+    private void addLargeArea(int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        var grown = Arrays.copyOf(largeAreas, largeAreas.length + 4);
+        grown[largeAreas.length] = minChunkX;
+        grown[largeAreas.length + 1] = minChunkZ;
+        grown[largeAreas.length + 2] = maxChunkX;
+        grown[largeAreas.length + 3] = maxChunkZ;
+        this.largeAreas = grown;
+    }
+
+    private void orWord(long key, long word) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+
+        var mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            var current = keys[slot];
+            if (current == key) {
+                words[slot] |= word;
+                return;
+            }
+            if (current == EMPTY_KEY) {
+                keys[slot] = key;
+                words[slot] = word;
+                size++;
+                return;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        var oldKeys = keys;
+        var oldWords = words;
+        this.keys = newKeys(capacity);
+        this.words = new long[capacity];
+
+        var mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            var key = oldKeys[i];
+            if (key == EMPTY_KEY) continue;
+
+            int slot = mix(key) & mask;
+            while (keys[slot] != EMPTY_KEY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            words[slot] = oldWords[i];
+        }
+    }
+
+    private static long[] newKeys(int capacity) {
+        var keys = new long[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        return keys;
+    }
+
+    private static long groupKey(int groupX, int groupZ) {
+        return ((long) groupX << 32) | (groupZ & 0xFFFFFFFFL);
+    }
+
+    private static long bit(int chunkX, int chunkZ) {
+        return 1L << (((chunkX & GROUP_MASK) << GROUP_SHIFT) | (chunkZ & GROUP_MASK));
+    }
+
+    private static int mix(long key) {
+        var hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,100 @@
+package io.invokegs.betterregions.integration;
+
+import com.sk89q.worldedit.IncompleteRegionException;
+import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.bukkit.WorldEditPlugin;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldguard.LocalPlayer;
+import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Player state shared by all features handling one region command.
+ * Resolves the WorldEdit session, the selection and the permissions once, so every
+ * feature sees the same selection.
+ * @param player the player running the command
+ * @param localPlayer the WorldGuard wrapper of the player
+ * @param world the world of the player
+ * @param editWorld the WorldEdit adapter of the world
+ * @param session the WorldEdit session of the player
+ * @param selection the selection when the context was captured, or null if the player has none
+ * @param limitsBypass whether the player bypasses block limits
+ * @param economyBypass whether the player claims for free
+ */
+public record ClaimContext(
+        Player player,
+        LocalPlayer localPlayer,
+        World world,
+        com.sk89q.worldedit.world.World editWorld,
+        LocalSession session,
+        @Nullable Selection selection,
+        boolean limitsBypass,
+        boolean economyBypass
+) {
+
+    /**
+     * Immutable copy of a WorldEdit selection.
+     * @param min the minimum point
+     * @param max the maximum point
+     * @param cuboid whether the selection is a cuboid
+     */
+    public record Selection(BlockVector3 min, BlockVector3 max, boolean cuboid) {
+        public static Selection of(Region region) {
+            return new Selection(region.getMinimumPoint(), region.getMaximumPoint(), region instanceof CuboidRegion);
+        }
+    }
+
+    /**
+     * Captures the context of a player. Must be called from the server thread.
+     * @param player the player running the command
+     * @return the context
+     */
+    public static ClaimContext capture(Player player) {
+        var session = WorldEditPlugin.getPlugin(WorldEditPlugin.class).getSession(player);
+        var editWorld = BukkitAdapter.adapt(player.getWorld());
+
+        return new ClaimContext(
+                player,
+                WorldGuardPlugin.inst().wrapPlayer(player),
+                player.getWorld(),
+                editWorld,
+                session,
+                readSelection(session, editWorld),
+                player.hasPermission("betterregions.limits.bypass"),
+                player.hasPermission("betterregions.economy.bypass")
+        );
+    }
+
+    /**
+     * Gets a copy of this context with another selection, e.g. after a feature changed it.
+     * @param region the new selection
+     * @return the updated context
+     */
+    public ClaimContext withSelection(Region region) {
+        return new ClaimContext(player, localPlayer, world, editWorld, session,
+                Selection.of(region), limitsBypass, economyBypass);
+    }
+
+    /**
+     * Checks whether the selection in the session still matches the captured one.
+     * @return false if the player changed or cleared their selection since
+     */
+    public boolean isSelectionCurrent() {
+        return selection != null && selection.equals(readSelection(session, editWorld));
+    }
+
+    private static @Nullable Selection readSelection(LocalSession session, com.sk89q.worldedit.world.World editWorld) {
+        try {
+            var selector = session.getRegionSelector(editWorld);
+            selector.learnChanges();
+            return Selection.of(selector.getRegion());
+        } catch (IncompleteRegionException e) {
+            return null;
+        }
+    }
+}
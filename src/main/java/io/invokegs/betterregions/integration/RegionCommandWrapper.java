@@ -1,13 +1,7 @@
 package io.invokegs.betterregions.integration;
 
-import com.sk89q.worldedit.IncompleteRegionException;
-import com.sk89q.worldedit.bukkit.BukkitAdapter;
-import com.sk89q.worldedit.bukkit.WorldEditPlugin;
-import com.sk89q.worldedit.regions.CuboidRegion;
-import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldguard.WorldGuard;
 import com.sk89q.worldguard.bukkit.BukkitWorldConfiguration;
-import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
 import com.sk89q.worldguard.internal.permission.RegionPermissionModel;
 import com.sk89q.worldguard.protection.managers.RegionManager;
 import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
@@ -21,6 +15,7 @@ import io.invokegs.betterregions.features.VerticalExpandFeature;
 import io.invokegs.betterregions.integration.inject.CommandWrapper;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.World;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
@@ -30,8 +25,24 @@ import org.jspecify.annotations.Nullable;
 
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 public final class RegionCommandWrapper extends CommandWrapper {
+    private static final Set<String> REGION_CHANGING_SUBCOMMANDS = Set.of(
+            "define", "def", "d", "create",
+            "remove", "rem", "delete", "del"
+    );
+    private static final Set<String> REGION_RELOADING_SUBCOMMANDS = Set.of(
+            "load", "reload",
+            "migratedb", "migrateuuid", "migrateheights"
+    );
+    private static final Set<String> REGION_UPDATING_SUBCOMMANDS = Set.of(
+            "flag", "f",
+            "addmember", "addmem", "am", "addowner", "ao",
+            "removemember", "remmember", "removemem", "remmem", "rm", "removeowner", "ro",
+            "setparent", "parent", "par",
+            "setpriority", "priority", "pri"
+    );
 
     private final Plugin plugin;
     private final Command originalCommand;
@@ -39,12 +50,15 @@ public final class RegionCommandWrapper extends CommandWrapper {
     private final Messages messages;
     private final EconomyService economyService;
     private final WorldGuardIntegration worldGuard;
+    private final RegionIndex regionIndex;
+    private final RegionSaveScheduler saveScheduler;
     private final @Nullable VerticalExpandFeature verticalExpandFeature;
     private final @Nullable BlockLimitsFeature blockLimitsFeature;
     private final @Nullable AutoFlagsFeature autoFlagsFeature;
 
     public RegionCommandWrapper(Plugin plugin, Command originalCommand, Configuration config, Messages messages,
                                 EconomyService economyService, WorldGuardIntegration worldGuard,
+                                RegionIndex regionIndex, RegionSaveScheduler saveScheduler,
                                 @Nullable VerticalExpandFeature verticalExpandFeature,
                                 @Nullable BlockLimitsFeature blockLimitsFeature,
                                 @Nullable AutoFlagsFeature autoFlagsFeature) {
@@ -56,6 +70,8 @@ public final class RegionCommandWrapper extends CommandWrapper {
         this.messages = messages;
         this.economyService = economyService;
         this.worldGuard = worldGuard;
+        this.regionIndex = regionIndex;
+        this.saveScheduler = saveScheduler;
         this.verticalExpandFeature = verticalExpandFeature;
         this.blockLimitsFeature = blockLimitsFeature;
         this.autoFlagsFeature = autoFlagsFeature;
@@ -114,7 +130,41 @@ public final class RegionCommandWrapper extends CommandWrapper {
         } catch (Exception e) {
             sender.sendMessage(Component.text(e.getMessage(), NamedTextColor.RED));
             return true;
+        } finally {
+            if (args.length > 0) {
+                var subCommand = args[0].toLowerCase(Locale.ROOT);
+                if (REGION_CHANGING_SUBCOMMANDS.contains(subCommand)) {
+                    for (var world : getTargetWorlds(sender, args)) {
+                        regionIndex.requestRebuild(world);
+                    }
+                } else if (REGION_RELOADING_SUBCOMMANDS.contains(subCommand)) {
+                    for (var world : plugin.getServer().getWorlds()) {
+                        regionIndex.requestRebuild(world);
+                    }
+                } else if (REGION_UPDATING_SUBCOMMANDS.contains(subCommand)) {
+                    for (var world : getTargetWorlds(sender, args)) {
+                        regionIndex.regionsUpdated(world);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the worlds a region subcommand acts on: the world given with -w, otherwise the world
+     * of the player, or every world if neither is known.
+     */
+    private List<World> getTargetWorlds(CommandSender sender, String[] args) {
+        for (int i = 1; i + 1 < args.length; i++) {
+            if (args[i].equalsIgnoreCase("-w")) {
+                var world = plugin.getServer().getWorld(args[i + 1]);
+                return world != null ? List.of(world) : plugin.getServer().getWorlds();
+            }
         }
+        if (sender instanceof Player player) {
+            return List.of(player.getWorld());
+        }
+        return plugin.getServer().getWorlds();
     }
 
     private boolean handleClaim(Player player, String[] args) {
@@ -124,25 +174,24 @@ public final class RegionCommandWrapper extends CommandWrapper {
         }
 
         economyService.cancelPendingAction(player);
+        var context = ClaimContext.capture(player);
         if (verticalExpandFeature != null) {
-            verticalExpandFeature.expandVerticallyWithMessage(player);
+            context = verticalExpandFeature.expandVerticallyWithMessage(context);
         }
 
-        if (!validateBlockLimits(player)) return true;
-
-        var economyResult = economyService.processCommand(player, "claim", args);
+        if (!validateBlockLimits(context)) return true;
 
-        return switch (economyResult) {
-            case EconomyService.ProcessResult.Allow() -> {
-                performClaim(player, args);
-                yield true;
-            }
-            case EconomyService.ProcessResult.Deny(var reason) -> {
-                player.sendMessage(reason);
-                yield true;
-            }
-            case EconomyService.ProcessResult.AwaitingConfirmation() -> true;
-        };
+        var claimContext = context;
+        economyService.processCommand(claimContext, "claim", args)
+                .thenAccept(result -> {
+                    switch (result) {
+                        case EconomyService.ProcessResult.Allow(var payment) -> performClaim(claimContext, args, payment);
+                        case EconomyService.ProcessResult.Deny(var reason) -> player.sendMessage(reason);
+                        case EconomyService.ProcessResult.AwaitingConfirmation() -> {}
+                    }
+                })
+                .exceptionally(e -> reportFailure(player, "claim", e));
+        return true;
     }
 
     private boolean handleRedefine(Player player, String[] args) {
@@ -152,21 +201,19 @@ public final class RegionCommandWrapper extends CommandWrapper {
         }
 
         economyService.cancelPendingAction(player);
-        if (!validateBlockLimits(player)) return true;
-
-        var economyResult = economyService.processCommand(player, "redefine", args);
-
-        return switch (economyResult) {
-            case EconomyService.ProcessResult.Allow() -> {
-                performRedefine(player, args);
-                yield true;
-            }
-            case EconomyService.ProcessResult.Deny(var reason) -> {
-                player.sendMessage(reason);
-                yield true;
-            }
-            case EconomyService.ProcessResult.AwaitingConfirmation() -> true;
-        };
+        var context = ClaimContext.capture(player);
+        if (!validateBlockLimits(context)) return true;
+
+        economyService.processCommand(context, "redefine", args)
+                .thenAccept(result -> {
+                    switch (result) {
+                        case EconomyService.ProcessResult.Allow(var payment) -> performRedefine(context, args, payment);
+                        case EconomyService.ProcessResult.Deny(var reason) -> player.sendMessage(reason);
+                        case EconomyService.ProcessResult.AwaitingConfirmation() -> {}
+                    }
+                })
+                .exceptionally(e -> reportFailure(player, "redefine", e));
+        return true;
     }
 
     private boolean handleConfirm(Player player) {
@@ -176,37 +223,55 @@ public final class RegionCommandWrapper extends CommandWrapper {
             return true;
         }
 
-        var result = economyService.handleConfirmation(player, true);
-        switch (result) {
-            case EconomyService.ProcessResult.Allow() -> {
-                var command = pendingAction.command();
-                var originalArgs = pendingAction.args();
-
-                if ("claim".equals(command)) {
-                    performClaim(player, originalArgs);
-                } else if ("redefine".equals(command)) {
-                    performRedefine(player, originalArgs);
-                }
-            }
-            case EconomyService.ProcessResult.Deny(var reason) -> player.sendMessage(reason);
-            case EconomyService.ProcessResult.AwaitingConfirmation() -> {}
-        }
+        var context = ClaimContext.capture(player);
+        economyService.handleConfirmation(context)
+                .thenAccept(result -> {
+                    switch (result) {
+                        case EconomyService.ProcessResult.Allow(var payment) -> {
+                            var command = pendingAction.command();
+                            var originalArgs = pendingAction.args();
+
+                            if ("claim".equals(command)) {
+                                performClaim(context, originalArgs, payment);
+                            } else if ("redefine".equals(command)) {
+                                performRedefine(context, originalArgs, payment);
+                            } else {
+                                economyService.refundPayment(payment);
+                            }
+                        }
+                        case EconomyService.ProcessResult.Deny(var reason) -> player.sendMessage(reason);
+                        case EconomyService.ProcessResult.AwaitingConfirmation() -> {}
+                    }
+                })
+                .exceptionally(e -> reportFailure(player, "confirm", e));
 
         return true;
     }
 
     private boolean handleCancel(Player player) {
-        var result = economyService.handleConfirmation(player, false);
-        if (result instanceof EconomyService.ProcessResult.Deny(Component reason)) {
+        if (economyService.handleCancellation(player) instanceof EconomyService.ProcessResult.Deny(Component reason)) {
             player.sendMessage(reason);
         }
         return true;
     }
 
-    private void performClaim(Player player, String[] args) {
+    private @Nullable Void reportFailure(Player player, String action, Throwable error) {
+        plugin.getLogger().warning("Failed to price " + action + " for " + player.getName() + ": " + error.getMessage());
+        if (player.isOnline()) {
+            player.sendMessage(Component.text("An internal error occurred while pricing the region.", NamedTextColor.RED));
+        }
+        return null;
+    }
+
+    /**
+     * Claims a region. The payment is committed if the region is created and refunded otherwise.
+     */
+    private void performClaim(ClaimContext context, String[] args, EconomyService.Payment payment) {
+        var player = context.player();
+        var paid = false;
         try {
             var regionId = args[1];
-            var localPlayer = WorldGuardPlugin.inst().wrapPlayer(player);
+            var localPlayer = context.localPlayer();
             var permModel = new RegionPermissionModel(localPlayer);
 
             if (!permModel.mayClaim()) {
@@ -227,10 +292,10 @@ public final class RegionCommandWrapper extends CommandWrapper {
                 return;
             }
 
-            var region = createRegionFromSelection(player, regionId);
+            var region = createRegionFromSelection(context, regionId);
             if (region == null) return;
 
-            var wcfg = getWorldConfig(player);
+            var wcfg = getWorldConfig(context);
 
             if (!permModel.mayClaimRegionsUnbounded()) {
                 int maxRegionCount = wcfg.getMaxRegionCount(localPlayer);
@@ -277,40 +342,38 @@ public final class RegionCommandWrapper extends CommandWrapper {
             }
 
             region.getOwners().addPlayer(localPlayer);
-            manager.addRegion(region);
 
-            try {
-                manager.save();
-            } catch (Exception saveException) {
-                plugin.getLogger().warning("Failed to save region manager: " + saveException.getMessage());
-            }
-
-            if (!economyService.processPaymentAfterSuccess(player)) {
-                manager.removeRegion(regionId);
-                try {
-                    manager.save();
-                } catch (Exception saveException) {
-                    plugin.getLogger().warning("Failed to save region manager after removal: " + saveException.getMessage());
-                }
-                return;
-            }
+            manager.addRegion(region);
+            economyService.commitPayment(player, payment);
+            paid = true;
+            regionIndex.regionChanged(context.world(), region);
+            saveScheduler.markDirty(context.world(), manager);
 
             player.sendMessage(messages.claimSuccess(regionId));
 
             if (autoFlagsFeature != null) {
-                autoFlagsFeature.applyAutoFlags(player, player.getWorld(), regionId);
+                autoFlagsFeature.applyAutoFlags(player, context.world(), regionId);
             }
 
         } catch (Exception e) {
             player.sendMessage(Component.text("An internal error occurred while claiming region.", NamedTextColor.RED));
             plugin.getLogger().warning("Failed to claim region: " + e.getMessage());
+        } finally {
+            if (!paid) {
+                economyService.refundPayment(payment);
+            }
         }
     }
 
-    private void performRedefine(Player player, String[] args) {
+    /**
+     * Redefines a region. The payment is committed if the region is replaced and refunded otherwise.
+     */
+    private void performRedefine(ClaimContext context, String[] args, EconomyService.Payment payment) {
+        var player = context.player();
+        var paid = false;
         try {
             var regionId = args[1];
-            var localPlayer = WorldGuardPlugin.inst().wrapPlayer(player);
+            var localPlayer = context.localPlayer();
             var manager = getRegionManager(player);
             if (manager == null) return;
 
@@ -326,56 +389,42 @@ public final class RegionCommandWrapper extends CommandWrapper {
                 return;
             }
 
-            var newRegion = createRegionFromSelection(player, regionId);
+            var newRegion = createRegionFromSelection(context, regionId);
             if (newRegion == null) return;
 
             newRegion.copyFrom(existing);
-            manager.addRegion(newRegion);
-
-            try {
-                manager.save();
-            } catch (Exception saveException) {
-                plugin.getLogger().warning("Failed to save region manager: " + saveException.getMessage());
-            }
 
-            if (!economyService.processPaymentAfterSuccess(player)) {
-                manager.addRegion(existing);
-                try {
-                    manager.save();
-                } catch (Exception saveException) {
-                    plugin.getLogger().warning("Failed to save region manager after rollback: " + saveException.getMessage());
-                }
-                return;
-            }
+            manager.addRegion(newRegion);
+            economyService.commitPayment(player, payment);
+            paid = true;
+            regionIndex.regionChanged(context.world(), newRegion);
+            saveScheduler.markDirty(context.world(), manager);
 
             player.sendMessage(messages.redefineSuccess(regionId));
 
         } catch (Exception e) {
             player.sendMessage(Component.text("Failed to redefine region: " + e.getMessage(), NamedTextColor.RED));
             plugin.getLogger().warning("Failed to redefine region: " + e.getMessage());
+        } finally {
+            if (!paid) {
+                economyService.refundPayment(payment);
+            }
         }
     }
 
-    private @Nullable ProtectedRegion createRegionFromSelection(Player player, String id) {
-        try {
-            var worldEdit = WorldEditPlugin.getPlugin(WorldEditPlugin.class);
-            var session = worldEdit.getSession(player);
-            var world = BukkitAdapter.adapt(player.getWorld());
-            var selection = session.getSelection(world);
-
-            if (selection instanceof CuboidRegion) {
-                return new ProtectedCuboidRegion(id, selection.getMinimumPoint(), selection.getMaximumPoint());
-            } else {
-                player.sendMessage(messages.onlyCuboidSelection());
-                return null;
-            }
-        } catch (IncompleteRegionException e) {
-            player.sendMessage(messages.noSelection());
+    private @Nullable ProtectedRegion createRegionFromSelection(ClaimContext context, String id) {
+        var selection = context.selection();
+        if (selection == null) {
+            context.player().sendMessage(messages.noSelection());
             return null;
-        } catch (Exception e) {
-            player.sendMessage(Component.text("Error creating region: " + e.getMessage(), NamedTextColor.RED));
+        }
+
+        if (!selection.cuboid()) {
+            context.player().sendMessage(messages.onlyCuboidSelection());
             return null;
         }
+
+        return new ProtectedCuboidRegion(id, selection.min(), selection.max());
     }
 
     private @Nullable RegionManager getRegionManager(Player player) {
@@ -387,19 +436,19 @@ public final class RegionCommandWrapper extends CommandWrapper {
         return manager;
     }
 
-    private boolean validateBlockLimits(Player player) {
+    private boolean validateBlockLimits(ClaimContext context) {
         if (blockLimitsFeature != null) {
-            var validation = blockLimitsFeature.validateSelection(player);
+            var validation = blockLimitsFeature.validateSelection(context);
             if (validation instanceof BlockLimitsFeature.ValidationResult.Deny(Component reason)) {
-                player.sendMessage(reason);
+                context.player().sendMessage(reason);
                 return false;
             }
         }
         return true;
     }
 
-    private BukkitWorldConfiguration getWorldConfig(Player player) {
+    private BukkitWorldConfiguration getWorldConfig(ClaimContext context) {
         return (BukkitWorldConfiguration) WorldGuard.getInstance()
-                .getPlatform().getGlobalStateManager().get(BukkitAdapter.adapt(player.getWorld()));
+                .getPlatform().getGlobalStateManager().get(context.editWorld());
     }
 }
\ No newline at end of file
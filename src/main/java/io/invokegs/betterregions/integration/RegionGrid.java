@@ -0,0 +1,136 @@
+package io.invokegs.betterregions.integration;
+
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid of region bounding boxes over the XZ plane.
+ * Every region is stored in each 256x256 cell it overlaps, regions spanning too many cells
+ * are kept in a separate list that is always scanned.
+ * Not thread-safe.
+ */
+final class RegionGrid {
+    private static final int CELL_SHIFT = 8;
+    private static final long MAX_REGION_CELLS = 1024;
+    private static final long MAX_QUERY_CELLS = 4096;
+
+    private record Entry(ProtectedRegion region, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        private boolean intersects(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+            return this.minX <= maxX && this.maxX >= minX
+                    && this.minY <= maxY && this.maxY >= minY
+                    && this.minZ <= maxZ && this.maxZ >= minZ;
+        }
+
+        private boolean isLarge() {
+            return cellCount(minX, minZ, maxX, maxZ) > MAX_REGION_CELLS;
+        }
+    }
+
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private final List<Entry> largeEntries = new ArrayList<>();
+    private final Map<String, Entry> entriesById = new HashMap<>();
+
+    /**
+     * Adds a region or replaces the stored bounds of a region with the same ID.
+     * @param region the region
+     */
+    void put(ProtectedRegion region) {
+        remove(region.getId());
+
+        var min = region.getMinimumPoint();
+        var max = region.getMaximumPoint();
+        var entry = new Entry(region, min.x(), min.y(), min.z(), max.x(), max.y(), max.z());
+        entriesById.put(region.getId(), entry);
+
+        if (entry.isLarge()) {
+            largeEntries.add(entry);
+            return;
+        }
+
+        for (int cellX = entry.minX() >> CELL_SHIFT; cellX <= entry.maxX() >> CELL_SHIFT; cellX++) {
+            for (int cellZ = entry.minZ() >> CELL_SHIFT; cellZ <= entry.maxZ() >> CELL_SHIFT; cellZ++) {
+                cells.computeIfAbsent(cellKey(cellX, cellZ), k -> new ArrayList<>(4)).add(entry);
+            }
+        }
+    }
+
+    /**
+     * Removes a region by ID.
+     * @param id the region ID
+     */
+    void remove(String id) {
+        var entry = entriesById.remove(id);
+        if (entry == null) return;
+
+        if (entry.isLarge()) {
+            largeEntries.remove(entry);
+            return;
+        }
+
+        for (int cellX = entry.minX() >> CELL_SHIFT; cellX <= entry.maxX() >> CELL_SHIFT; cellX++) {
+            for (int cellZ = entry.minZ() >> CELL_SHIFT; cellZ <= entry.maxZ() >> CELL_SHIFT; cellZ++) {
+                var key = cellKey(cellX, cellZ);
+                var list = cells.get(key);
+                if (list == null) continue;
+
+                list.remove(entry);
+                if (list.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the regions whose bounding boxes intersect a cuboid area, each region once.
+     * @param result the list to add the regions to
+     */
+    void query(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, List<ProtectedRegion> result) {
+        if (cellCount(minX, minZ, maxX, maxZ) > MAX_QUERY_CELLS) {
+            for (var entry : entriesById.values()) {
+                if (entry.intersects(minX, minY, minZ, maxX, maxY, maxZ)) {
+                    result.add(entry.region());
+                }
+            }
+            return;
+        }
+
+        int minCellX = minX >> CELL_SHIFT, minCellZ = minZ >> CELL_SHIFT;
+        for (int cellX = minCellX; cellX <= maxX >> CELL_SHIFT; cellX++) {
+            for (int cellZ = minCellZ; cellZ <= maxZ >> CELL_SHIFT; cellZ++) {
+                var list = cells.get(cellKey(cellX, cellZ));
+                if (list == null) continue;
+
+                for (var entry : list) {
+                    // Report an entry only from the first cell shared by the entry and the query
+                    if (cellX != Math.max(minCellX, entry.minX() >> CELL_SHIFT)
+                            || cellZ != Math.max(minCellZ, entry.minZ() >> CELL_SHIFT)) {
+                        continue;
+                    }
+                    if (entry.intersects(minX, minY, minZ, maxX, maxY, maxZ)) {
+                        result.add(entry.region());
+                    }
+                }
+            }
+        }
+
+        for (var entry : largeEntries) {
+            if (entry.intersects(minX, minY, minZ, maxX, maxY, maxZ)) {
+                result.add(entry.region());
+            }
+        }
+    }
+
+    private static long cellCount(int minX, int minZ, int maxX, int maxZ) {
+        return ((long) (maxX >> CELL_SHIFT) - (minX >> CELL_SHIFT) + 1)
+                * ((long) (maxZ >> CELL_SHIFT) - (minZ >> CELL_SHIFT) + 1);
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,365 @@
+package io.invokegs.betterregions.integration;
+
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.GlobalProtectedRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import io.invokegs.betterregions.config.Configuration;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Per-world index of region locations.
+ * Tracks the chunks that intersect at least one non-global region, which lets protection
+ * listeners skip WorldGuard queries in the wilderness, and a grid of region bounds for
+ * overlap lookups that do not depend on the total region count.
+ * <p>
+ * The index is built asynchronously and may report chunks whose regions were removed since,
+ * but never misses a chunk of a region it knows about. Worlds that are not indexed yet, or
+ * whose regions changed since they were indexed, report every chunk as possibly containing
+ * regions. Regions added or removed through the WorldGuard API are detected by the next check,
+ * within a second. Regions redefined through the API are detected by a scan that verifies a
+ * limited number of regions per check, so it takes a second per {@value #REGIONS_VERIFIED_PER_CHECK} regions.
+ * All methods must be called from the server thread.
+ */
+public final class RegionIndex implements Listener {
+    private static final long CHECK_INTERVAL_TICKS = 20L;
+    private static final long COMMAND_REBUILD_DELAY_TICKS = 20L;
+    private static final int REGIONS_VERIFIED_PER_CHECK = 1024;
+
+    private final Plugin plugin;
+    private final WorldGuardIntegration worldGuard;
+    private final Configuration config;
+    private final Map<UUID, WorldIndex> worlds = new HashMap<>();
+    private final Set<UUID> building = new HashSet<>();
+    private final Set<UUID> rebuildQueued = new HashSet<>();
+    private final Map<UUID, Long> versions = new HashMap<>();
+    private final Map<UUID, Long> updateVersions = new HashMap<>();
+    private @Nullable BukkitTask checkTask;
+    private long ticksSinceFullRebuild;
+
+    private static final class WorldIndex {
+        private final RegionManager manager;
+        private final ChunkBitmap chunks = new ChunkBitmap();
+        private final RegionGrid grid = new RegionGrid();
+        private final Map<String, ProtectedRegion> regions = new HashMap<>();
+        private final List<String> scanOrder = new ArrayList<>();
+        private int scanPosition;
+
+        private WorldIndex(RegionManager manager) {
+            this.manager = manager;
+        }
+
+        private void add(ProtectedRegion region) {
+            if (regions.put(region.getId(), region) == null) {
+                scanOrder.add(region.getId());
+            }
+            if (region instanceof GlobalProtectedRegion) return;
+
+            var min = region.getMinimumPoint();
+            var max = region.getMaximumPoint();
+            chunks.addArea(min.x() >> 4, min.z() >> 4, max.x() >> 4, max.z() >> 4);
+            grid.put(region);
+        }
+
+        /**
+         * Checks whether the regions of the manager are still the indexed ones. Redefined regions
+         * are new objects, so a changed region shows up as a different instance or a changed count.
+         * The count is always compared, the instances of at most the given number of regions,
+         * continuing where the previous check stopped.
+         * @param maxVerified the maximum number of regions whose instance is compared
+         */
+        private boolean isCurrent(@Nullable RegionManager manager, int maxVerified) {
+            if (manager != this.manager || manager.size() != regions.size()) return false;
+
+            var count = Math.min(maxVerified, scanOrder.size());
+            for (int i = 0; i < count; i++) {
+                if (scanPosition >= scanOrder.size()) {
+                    scanPosition = 0;
+                }
+                var id = scanOrder.get(scanPosition++);
+                if (manager.getRegion(id) != regions.get(id)) return false;
+            }
+            return true;
+        }
+    }
+
+    public RegionIndex(Plugin plugin, WorldGuardIntegration worldGuard, Configuration config) {
+        this.plugin = plugin;
+        this.worldGuard = worldGuard;
+        this.config = config;
+    }
+
+    public void enable() {
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        for (var world : plugin.getServer().getWorlds()) {
+            rebuild(world);
+        }
+        this.checkTask = plugin.getServer().getScheduler()
+                .runTaskTimer(plugin, this::checkWorlds, CHECK_INTERVAL_TICKS, CHECK_INTERVAL_TICKS);
+    }
+
+    public void disable() {
+        WorldLoadEvent.getHandlerList().unregister(this);
+        WorldUnloadEvent.getHandlerList().unregister(this);
+        if (checkTask != null) {
+            checkTask.cancel();
+            checkTask = null;
+        }
+        worlds.clear();
+        building.clear();
+        rebuildQueued.clear();
+        versions.clear();
+        updateVersions.clear();
+    }
+
+    /**
+     * Checks whether a location may be inside a non-global region.
+     * @param location the location to check
+     * @return false only if the chunk of the location is known to contain no regions
+     */
+    public boolean mayContainRegions(Location location) {
+        return mayContainRegions(location.getWorld(), location.getBlockX(), location.getBlockZ());
+    }
+
+    /**
+     * Checks whether a block may be inside a non-global region.
+     * @param block the block to check
+     * @return false only if the chunk of the block is known to contain no regions
+     */
+    public boolean mayContainRegions(Block block) {
+        return mayContainRegions(block.getWorld(), block.getX(), block.getZ());
+    }
+
+    /**
+     * Checks whether a block column may be inside a non-global region.
+     * @param world the world
+     * @param blockX the block X coordinate
+     * @param blockZ the block Z coordinate
+     * @return false only if the chunk of the column is known to contain no regions
+     */
+    public boolean mayContainRegions(World world, int blockX, int blockZ) {
+        var index = worlds.get(world.getUID());
+        return index == null || index.chunks.contains(blockX >> 4, blockZ >> 4);
+    }
+
+    /**
+     * Gets the non-global regions whose bounding boxes intersect a cuboid area.
+     * Regions removed or replaced since they were indexed are skipped.
+     * @param world the world
+     * @return the intersecting regions, or null if the world is not indexed yet
+     */
+    public @Nullable List<ProtectedRegion> getIntersecting(World world, int minX, int minY, int minZ,
+                                                           int maxX, int maxY, int maxZ) {
+        var index = worlds.get(world.getUID());
+        if (index == null) return null;
+
+        var result = new ArrayList<ProtectedRegion>();
+        index.grid.query(minX, minY, minZ, maxX, maxY, maxZ, result);
+        result.removeIf(region -> index.manager.getRegion(region.getId()) != region);
+        return result;
+    }
+
+    /**
+     * Gets the region version of a world, which changes whenever the bounds of a region in the
+     * world may have changed. Flag and membership changes do not change it.
+     * @param world the world
+     * @return the current version
+     */
+    public long getVersion(World world) {
+        return versions.getOrDefault(world.getUID(), 0L);
+    }
+
+    /**
+     * Gets the access version of a world, which changes whenever the region version changes or
+     * the flags or members of a region in the world may have changed.
+     * @param world the world
+     * @return the current version
+     */
+    public long getAccessVersion(World world) {
+        var uid = world.getUID();
+        return versions.getOrDefault(uid, 0L) + updateVersions.getOrDefault(uid, 0L);
+    }
+
+    /**
+     * Records a region that was added or redefined in a world.
+     * @param world the world of the region
+     * @param region the new region state
+     */
+    public void regionChanged(World world, ProtectedRegion region) {
+        var uid = world.getUID();
+        bumpVersion(uid);
+        if (building.contains(uid)) {
+            rebuildQueued.add(uid);
+        }
+
+        var index = worlds.get(uid);
+        if (index == null) return;
+
+        index.add(region);
+    }
+
+    /**
+     * Records that regions of a world changed without changing their bounds, e.g. after flag or
+     * membership commands. Changes the access version now and again after a short delay, as
+     * WorldGuard applies membership commands asynchronously once it has resolved player names.
+     * @param world the world of the regions
+     */
+    public void regionsUpdated(World world) {
+        var uid = world.getUID();
+        bumpUpdateVersion(uid);
+        plugin.getServer().getScheduler().runTaskLater(plugin, () -> bumpUpdateVersion(uid), COMMAND_REBUILD_DELAY_TICKS);
+    }
+
+    /**
+     * Stops using the index of a world and rebuilds it after a short delay, e.g. after WorldGuard
+     * commands that change regions asynchronously. Until then every chunk of the world is reported
+     * as possibly containing regions.
+     * @param world the world whose regions changed
+     */
+    public void requestRebuild(World world) {
+        var uid = world.getUID();
+        invalidate(uid);
+        plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
+            var loaded = Bukkit.getWorld(uid);
+            if (loaded != null) {
+                rebuild(loaded);
+            }
+        }, COMMAND_REBUILD_DELAY_TICKS);
+    }
+
+    /**
+     * Rebuilds the index of a world asynchronously.
+     * @param world the world to rebuild
+     */
+    public void rebuild(World world) {
+        var uid = world.getUID();
+        var manager = worldGuard.getRegionManager(world);
+        if (manager == null) {
+            worlds.remove(uid);
+            return;
+        }
+
+        if (!building.add(uid)) {
+            rebuildQueued.add(uid);
+            return;
+        }
+
+        // WorldGuard only guards its region map for the server thread, copy it before leaving
+        var regions = List.copyOf(manager.getRegions().values());
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            WorldIndex built = null;
+            try {
+                built = build(manager, regions);
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to build region index for " + world.getName(), e);
+            }
+
+            if (!plugin.isEnabled()) return;
+            var result = built;
+            plugin.getServer().getScheduler().runTask(plugin, () -> install(uid, result));
+        });
+    }
+
+    private WorldIndex build(RegionManager manager, List<ProtectedRegion> regions) {
+        var index = new WorldIndex(manager);
+        for (var region : regions) {
+            index.add(region);
+        }
+        return index;
+    }
+
+    private void install(UUID uid, @Nullable WorldIndex index) {
+        if (!building.remove(uid)) return;
+
+        var world = Bukkit.getWorld(uid);
+        if (world == null) {
+            worlds.remove(uid);
+            rebuildQueued.remove(uid);
+            return;
+        }
+
+        // Regions changed while building are missing from the new index, so it is only installed if still current
+        var queued = rebuildQueued.remove(uid);
+        if (index != null && !queued && index.isCurrent(worldGuard.getRegionManager(world), Integer.MAX_VALUE)) {
+            worlds.put(uid, index);
+            bumpVersion(uid);
+        } else if (queued || index != null) {
+            rebuild(world);
+        }
+    }
+
+    /**
+     * Drops the index of a world until it is rebuilt.
+     */
+    private void invalidate(UUID uid) {
+        worlds.remove(uid);
+        bumpVersion(uid);
+    }
+
+    private void bumpVersion(UUID uid) {
+        versions.merge(uid, 1L, Long::sum);
+    }
+
+    private void bumpUpdateVersion(UUID uid) {
+        updateVersions.merge(uid, 1L, Long::sum);
+    }
+
+    private void checkWorlds() {
+        var rebuildInterval = config.getRegionIndexRebuildIntervalSeconds() * 20L;
+        ticksSinceFullRebuild += CHECK_INTERVAL_TICKS;
+        var fullRebuild = rebuildInterval > 0 && ticksSinceFullRebuild >= rebuildInterval;
+        if (fullRebuild) {
+            ticksSinceFullRebuild = 0;
+        }
+
+        for (var world : plugin.getServer().getWorlds()) {
+            var uid = world.getUID();
+            var manager = worldGuard.getRegionManager(world);
+            var index = worlds.get(uid);
+
+            var stale = index != null && (manager == null || !index.isCurrent(manager, REGIONS_VERIFIED_PER_CHECK));
+            if (stale) {
+                invalidate(uid);
+            }
+            if (manager == null) continue;
+
+            if (building.contains(uid)) {
+                if (stale) {
+                    rebuildQueued.add(uid);
+                }
+            } else if (fullRebuild || index == null || stale) {
+                rebuild(world);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        var world = event.getWorld();
+        plugin.getServer().getScheduler().runTask(plugin, () -> rebuild(world));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        worlds.remove(event.getWorld().getUID());
+    }
+}
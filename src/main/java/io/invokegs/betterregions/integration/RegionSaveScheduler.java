@@ -0,0 +1,141 @@
+package io.invokegs.betterregions.integration;
+
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import io.invokegs.betterregions.config.Configuration;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Writes changed region managers in debounced batches off the server thread.
+ * Region commands mark their world dirty instead of saving, and every world is saved
+ * at most once per configured interval. Pending changes are flushed synchronously
+ * on reload and shutdown.
+ */
+public final class RegionSaveScheduler {
+    private static final long CHECK_INTERVAL_TICKS = 20L;
+
+    private final Plugin plugin;
+    private final Configuration config;
+    private final Map<UUID, RegionManager> dirty = new ConcurrentHashMap<>();
+    private final Map<UUID, RegionManager> saving = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> lastSaveTimes = new ConcurrentHashMap<>();
+    private final LongAdder saves = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalSaveNanos = new LongAdder();
+    private final AtomicLong maxSaveNanos = new AtomicLong();
+    private @Nullable BukkitTask checkTask;
+
+    /**
+     * Snapshot of save statistics.
+     * @param saves the number of completed saves
+     * @param failures the number of failed saves
+     * @param averageMillis the average save duration in milliseconds
+     * @param maxMillis the longest save duration in milliseconds
+     * @param queueDepth the number of worlds waiting to be saved or being saved
+     */
+    public record SaveStats(long saves, long failures, double averageMillis, double maxMillis, int queueDepth) {}
+
+    public RegionSaveScheduler(Plugin plugin, Configuration config) {
+        this.plugin = plugin;
+        this.config = config;
+    }
+
+    public void enable() {
+        this.checkTask = plugin.getServer().getScheduler()
+                .runTaskTimer(plugin, this::saveDueWorlds, CHECK_INTERVAL_TICKS, CHECK_INTERVAL_TICKS);
+    }
+
+    public void disable() {
+        if (checkTask != null) {
+            checkTask.cancel();
+            checkTask = null;
+        }
+        flush();
+    }
+
+    /**
+     * Schedules the regions of a world to be saved.
+     * @param world the world whose regions changed
+     * @param manager the region manager of the world
+     */
+    public void markDirty(World world, RegionManager manager) {
+        dirty.put(world.getUID(), manager);
+    }
+
+    /**
+     * Saves all dirty worlds on the calling thread, e.g. before a reload or shutdown.
+     * Worlds whose batch save is still queued or running are saved again, since the scheduler
+     * drops queued tasks on shutdown, and waiting for the save lock waits for running ones.
+     */
+    public void flush() {
+        for (var entry : Map.copyOf(saving).entrySet()) {
+            save(entry.getKey(), entry.getValue());
+        }
+        for (var uid : Set.copyOf(dirty.keySet())) {
+            var manager = dirty.remove(uid);
+            if (manager != null) {
+                save(uid, manager);
+            }
+        }
+    }
+
+    public SaveStats getStats() {
+        var count = saves.sum();
+        var average = count == 0 ? 0.0 : totalSaveNanos.sum() / (double) count / 1_000_000.0;
+        return new SaveStats(count, failures.sum(), average, maxSaveNanos.get() / 1_000_000.0,
+                dirty.size() + saving.size());
+    }
+
+    private void saveDueWorlds() {
+        var intervalMillis = config.getRegionSaveIntervalSeconds() * 1000L;
+        var now = System.currentTimeMillis();
+
+        for (var uid : Set.copyOf(dirty.keySet())) {
+            if (saving.containsKey(uid)) continue;
+            if (now - lastSaveTimes.getOrDefault(uid, 0L) < intervalMillis) continue;
+
+            var manager = dirty.remove(uid);
+            if (manager == null) continue;
+
+            saving.put(uid, manager);
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                try {
+                    save(uid, manager);
+                } finally {
+                    saving.remove(uid, manager);
+                }
+            });
+        }
+    }
+
+    private void save(UUID uid, RegionManager manager) {
+        var start = System.nanoTime();
+        try {
+            // A flush may run while a batch save of the same world is still in progress
+            synchronized (manager) {
+                manager.saveChanges();
+            }
+
+            var elapsed = System.nanoTime() - start;
+            saves.increment();
+            totalSaveNanos.add(elapsed);
+            maxSaveNanos.accumulateAndGet(elapsed, Math::max);
+        } catch (Exception e) {
+            failures.increment();
+            dirty.putIfAbsent(uid, manager);
+            plugin.getLogger().log(Level.WARNING, "Failed to save regions of world " + uid, e);
+        } finally {
+            lastSaveTimes.put(uid, System.currentTimeMillis());
+        }
+    }
+}
@@ -152,6 +152,31 @@ public final class VaultIntegration {
         }
     }
 
+    /**
+     * Deposits money to the player's account, e.g. to refund a failed purchase.
+     * @param player the player to pay
+     * @param amount the amount to deposit
+     * @return true if the transaction was successful
+     */
+    public boolean deposit(OfflinePlayer player, double amount) {
+        if (economy == null || amount <= 0) {
+            return true;
+        }
+
+        try {
+            var response = economy.depositPlayer(player, amount);
+            if (response.transactionSuccess()) {
+                return true;
+            } else {
+                plugin.getLogger().warning("Failed to deposit " + amount + " to " + player.getName() + ": " + response.errorMessage);
+                return false;
+            }
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Error depositing money to " + player.getName(), e);
+            return false;
+        }
+    }
+
     /**
      * Formats a currency amount using the economy provider.
      * @param amount the amount to format
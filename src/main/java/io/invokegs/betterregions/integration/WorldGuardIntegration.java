@@ -1,11 +1,14 @@
 package io.invokegs.betterregions.integration;
 
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldguard.LocalPlayer;
 import com.sk89q.worldguard.WorldGuard;
 import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
 import com.sk89q.worldguard.protection.ApplicableRegionSet;
 import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.GlobalProtectedRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
 import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import com.sk89q.worldguard.protection.regions.RegionContainer;
 import com.sk89q.worldguard.protection.regions.RegionQuery;
@@ -14,11 +17,16 @@ import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.jspecify.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Integration with WorldGuard for region management and queries.
  * Provides convenient access to WorldGuard functionality.
  */
 public final class WorldGuardIntegration {
+    private static final String QUERY_REGION_ID = "__betterregions_query__";
+
     private @Nullable WorldGuard worldGuard;
     private @Nullable WorldGuardPlugin worldGuardPlugin;
     private @Nullable RegionContainer regionContainer;
@@ -74,6 +82,25 @@ public final class WorldGuardIntegration {
         return regionQuery.getApplicableRegions(BukkitAdapter.adapt(location));
     }
 
+    /**
+     * Gets all non-global regions of a region manager intersecting a cuboid area.
+     * Uses the region manager index, so the cost does not depend on the total region count.
+     * @param manager the region manager
+     * @param min the minimum corner of the area
+     * @param max the maximum corner of the area
+     * @return the intersecting regions
+     */
+    public static List<ProtectedRegion> getRegionsIntersecting(RegionManager manager, BlockVector3 min, BlockVector3 max) {
+        var area = new ProtectedCuboidRegion(QUERY_REGION_ID, min, max);
+        var result = new ArrayList<ProtectedRegion>();
+        for (var region : manager.getApplicableRegions(area).getRegions()) {
+            if (!(region instanceof GlobalProtectedRegion)) {
+                result.add(region);
+            }
+        }
+        return result;
+    }
+
     /**
      * Checks if a player can build at a location.
      * @param player the player
@@ -0,0 +1,153 @@
+package io.invokegs.betterregions.economy;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UnionVolumeCalculatorTest {
+    private static final int GRID_SIZE = 48;
+
+    @Test
+    void emptyUnionIsZero() {
+        assertEquals(0, UnionVolumeCalculator.unionVolumeExact(List.of()));
+        assertEquals(BigInteger.ZERO, UnionVolumeCalculator.unionVolume(List.of()));
+    }
+
+    @Test
+    void singleBlock() {
+        assertVolume(1, List.of(box(3, -2, 7, 3, -2, 7)));
+    }
+
+    @Test
+    void overlappingBoxesAreCountedOnce() {
+        var boxes = List.of(
+                box(0, 0, 0, 9, 9, 9),
+                box(5, 5, 5, 14, 14, 14),
+                box(0, 0, 0, 9, 9, 9)
+        );
+        assertVolume(1000 + 1000 - 125, boxes);
+    }
+
+    @Test
+    void touchingBoxesAreNotMerged() {
+        var boxes = List.of(
+                box(0, 0, 0, 4, 4, 4),
+                box(5, 0, 0, 9, 4, 4),
+                box(0, 5, 0, 4, 9, 4),
+                box(0, 0, 5, 4, 4, 9)
+        );
+        assertVolume(4 * 125, boxes);
+    }
+
+    @Test
+    void flattenedBoxesMeasureArea() {
+        var boxes = List.of(
+                box(0, 64, 0, 9, 64, 9),
+                box(5, 64, 5, 14, 64, 14)
+        );
+        assertVolume(100 + 100 - 25, boxes);
+    }
+
+    @Test
+    void matchesVoxelOracleForFewBoxes() {
+        var random = new Random(6);
+        for (int round = 0; round < 2000; round++) {
+            assertMatchesOracle(randomBoxes(random, 1 + random.nextInt(8), 12));
+        }
+    }
+
+    @Test
+    void matchesVoxelOracleForHundredsOfOverlappingBoxes() {
+        var random = new Random(60);
+        for (int round = 0; round < 50; round++) {
+            assertMatchesOracle(randomBoxes(random, 100 + random.nextInt(300), GRID_SIZE / 2));
+        }
+    }
+
+    @Test
+    void matchesVoxelOracleForThinBoxes() {
+        var random = new Random(600);
+        for (int round = 0; round < 200; round++) {
+            var boxes = new ArrayList<EconomyService.RegionBounds>();
+            for (int i = 0; i < 50; i++) {
+                var x = random.nextInt(GRID_SIZE) - GRID_SIZE / 2;
+                var y = random.nextInt(GRID_SIZE) - GRID_SIZE / 2;
+                var z = random.nextInt(GRID_SIZE) - GRID_SIZE / 2;
+                var axis = random.nextInt(3);
+                var length = random.nextInt(GRID_SIZE / 2);
+                boxes.add(box(x, y, z,
+                        Math.min(x + (axis == 0 ? length : 0), GRID_SIZE / 2 - 1),
+                        Math.min(y + (axis == 1 ? length : 0), GRID_SIZE / 2 - 1),
+                        Math.min(z + (axis == 2 ? length : 0), GRID_SIZE / 2 - 1)));
+            }
+            assertMatchesOracle(boxes);
+        }
+    }
+
+    @Test
+    void volumeBeyondLongIsExact() {
+        var boxes = List.of(
+                box(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE,
+                        Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE),
+                box(0, 0, 0, 5, 5, 5)
+        );
+
+        assertEquals(BigInteger.ONE.shiftLeft(96), UnionVolumeCalculator.unionVolume(boxes));
+        assertThrows(ArithmeticException.class, () -> UnionVolumeCalculator.unionVolumeExact(boxes));
+    }
+
+    private static List<EconomyService.RegionBounds> randomBoxes(Random random, int count, int maxSize) {
+        var boxes = new ArrayList<EconomyService.RegionBounds>(count);
+        for (int i = 0; i < count; i++) {
+            var x = random.nextInt(GRID_SIZE) - GRID_SIZE / 2;
+            var y = random.nextInt(GRID_SIZE) - GRID_SIZE / 2;
+            var z = random.nextInt(GRID_SIZE) - GRID_SIZE / 2;
+            boxes.add(box(x, y, z,
+                    Math.min(x + random.nextInt(maxSize), GRID_SIZE / 2 - 1),
+                    Math.min(y + random.nextInt(maxSize), GRID_SIZE / 2 - 1),
+                    Math.min(z + random.nextInt(maxSize), GRID_SIZE / 2 - 1)));
+        }
+        return boxes;
+    }
+
+    private static void assertMatchesOracle(List<EconomyService.RegionBounds> boxes) {
+        assertVolume(voxelVolume(boxes), boxes);
+    }
+
+    private static void assertVolume(long expected, List<EconomyService.RegionBounds> boxes) {
+        assertEquals(expected, UnionVolumeCalculator.unionVolumeExact(boxes), () -> "exact volume of " + boxes);
+        assertEquals(BigInteger.valueOf(expected), UnionVolumeCalculator.unionVolume(boxes), () -> "volume of " + boxes);
+    }
+
+    /**
+     * Counts the covered blocks one by one. Boxes must lie inside the oracle grid.
+     */
+    private static long voxelVolume(List<EconomyService.RegionBounds> boxes) {
+        var offset = GRID_SIZE / 2;
+        var covered = new boolean[GRID_SIZE][GRID_SIZE][GRID_SIZE];
+        long count = 0;
+        for (var box : boxes) {
+            for (int x = box.minX(); x <= box.maxX(); x++) {
+                for (int y = box.minY(); y <= box.maxY(); y++) {
+                    for (int z = box.minZ(); z <= box.maxZ(); z++) {
+                        if (!covered[x + offset][y + offset][z + offset]) {
+                            covered[x + offset][y + offset][z + offset] = true;
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static EconomyService.RegionBounds box(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        return new EconomyService.RegionBounds(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+}